@@ -0,0 +1,33 @@
+package app.quiz.glass.config;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@RequiredArgsConstructor
+public class AsyncConfig {
+
+    private final QuizAppProperties properties;
+
+    /**
+     * Runs auto-submit work off the timer thread. Virtual threads keep blocking JDBC
+     * calls cheap, while the fixed pool size caps how many connections expiry can take
+     * from Hikari. A full queue rejects instead of blocking the caller.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolExecutor attemptExpiryExecutor() {
+        QuizAppProperties.Expiry expiry = properties.getExpiry();
+        return new ThreadPoolExecutor(
+                expiry.getConcurrency(),
+                expiry.getConcurrency(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(expiry.getQueueCapacity()),
+                Thread.ofVirtual().name("attempt-expiry-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
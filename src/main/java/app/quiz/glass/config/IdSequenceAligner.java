@@ -0,0 +1,42 @@
+package app.quiz.glass.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves the entity id sequences past ids handed out before the switch from IDENTITY
+ * columns, so pooled generators never collide with existing rows. Runs once the schema
+ * update has created the sequences and before anything can insert; a no-op once the
+ * sequences are ahead.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class IdSequenceAligner {
+
+    private static final List<String> TABLES = List.of(
+            "users", "quizzes", "questions", "question_options", "quiz_attempts", "answers");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void align() {
+        for (String table : TABLES) {
+            String sequence = table + "_seq";
+            // Pooled generators hand out (value - allocationSize, value], so max(id) is enough
+            List<Long> moved = jdbcTemplate.queryForList(
+                    "SELECT setval('" + sequence + "', m) FROM (SELECT MAX(id) AS m FROM " + table + ") x " +
+                            "WHERE m > (SELECT last_value FROM " + sequence + ")", Long.class);
+            if (!moved.isEmpty()) {
+                log.info("Moved sequence {} past existing id {}", sequence, moved.get(0));
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package app.quiz.glass.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps slow clients from building up a backlog of stale timer frames.
+ * <p>
+ * Every WebSocket session is wrapped so we know when a send to it is still in progress.
+ * While that is the case the session is congested: frames for coalescable destinations
+ * (by default the resolved {@code /user/queue/attempt}) are parked on the outbound channel
+ * instead of being queued behind the slow send, and a newer frame for the same destination
+ * and {@link #COALESCE_KEY_HEADER} replaces the parked one. Parked frames go out as soon
+ * as the send in progress completes, so a congested client gets the latest countdown
+ * instead of a burst of old ones. Other frames are never held back.
+ */
+@Component
+public class OutboundFrameCoalescer implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    /**
+     * Optional message header that splits one destination into independently coalesced
+     * streams, e.g. one per attempt. Not a native header, so it never reaches the client.
+     */
+    public static final String COALESCE_KEY_HEADER = "coalesceKey";
+
+    private final List<String> destinations;
+    private final Counter coalesced;
+    private final Counter dropped;
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    private volatile MessageChannel outboundChannel;
+
+    public OutboundFrameCoalescer(QuizAppProperties properties, MeterRegistry meterRegistry) {
+        this.destinations = properties.getWebsocket().getOutbound().getCoalesceDestinations();
+        this.coalesced = Counter.builder("glass.websocket.frames.coalesced")
+                .description("Outbound frames replaced by a newer frame for the same destination")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("glass.websocket.frames.dropped")
+                .description("Outbound frames discarded because their session closed first")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        outboundChannel = channel;
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE || !isCoalescable(accessor.getDestination())) {
+            return message;
+        }
+
+        SessionState state = accessor.getSessionId() != null ? sessions.get(accessor.getSessionId()) : null;
+        if (state == null || !state.sending) {
+            return message;
+        }
+
+        Object key = accessor.getHeader(COALESCE_KEY_HEADER);
+        String slot = key != null ? accessor.getDestination() + "#" + key : accessor.getDestination();
+        if (state.parked.put(slot, message) != null) {
+            coalesced.increment();
+        }
+        // The send may have finished while we parked; flush so the frame is not stranded
+        if (!state.sending) {
+            flush(state);
+        }
+        return null;
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionState state = new SessionState();
+                sessions.put(session.getId(), state);
+                super.afterConnectionEstablished(new TrackedSession(session, state));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
+                SessionState state = sessions.remove(session.getId());
+                if (state != null) {
+                    dropped.increment(state.parked.size());
+                }
+                super.afterConnectionClosed(session, status);
+            }
+        };
+    }
+
+    private boolean isCoalescable(String destination) {
+        if (destination == null) {
+            return false;
+        }
+        for (String prefix : destinations) {
+            if (destination.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void flush(SessionState state) {
+        MessageChannel channel = outboundChannel;
+        for (String slot : state.parked.keySet()) {
+            Message<?> message = state.parked.remove(slot);
+            if (message != null && channel != null) {
+                channel.send(message);
+            }
+        }
+    }
+
+    private static final class SessionState {
+        private final Map<String, Message<?>> parked = new ConcurrentHashMap<>();
+        private volatile boolean sending;
+    }
+
+    /**
+     * Sits below Spring's buffering session decorator, so it only sees the sends that
+     * actually hit the socket.
+     */
+    private final class TrackedSession extends WebSocketSessionDecorator {
+
+        private final SessionState state;
+
+        private TrackedSession(WebSocketSession delegate, SessionState state) {
+            super(delegate);
+            this.state = state;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            state.sending = true;
+            try {
+                super.sendMessage(message);
+            } finally {
+                state.sending = false;
+                if (!state.parked.isEmpty()) {
+                    flush(state);
+                }
+            }
+        }
+    }
+}
@@ -4,19 +4,90 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "quiz")
 public class QuizAppProperties {
 
     private Timer timer = new Timer();
+    private Expiry expiry = new Expiry();
+    private WebSocket websocket = new WebSocket();
+    private Cluster cluster = new Cluster();
     private Pagination pagination = new Pagination();
     private AutoSave autoSave = new AutoSave();
+    private AttemptCache attemptCache = new AttemptCache();
+    private ContentCache contentCache = new ContentCache();
+    private StatsCache statsCache = new StatsCache();
+    private Leaderboard leaderboard = new Leaderboard();
     private Security security = new Security();
 
     @Data
     public static class Timer {
-        private Long syncInterval = 1000L;
+        private Long syncInterval = 60000L;
+        private Long finalPhase = 60000L;
+        private Long finalSyncInterval = 10000L;
+        private Long sweepInterval = 30000L;
+        private Integer sweepBatchSize = 200;
+    }
+
+    @Data
+    public static class Expiry {
+        private Integer concurrency = 8;
+        private Integer queueCapacity = 1000;
+        private Integer batchSize = 50;
+        private Integer maxAttempts = 3;
+        private Long retryBackoffMs = 500L;
+        private Long quizCloseInterval = 5000L;
+    }
+
+    @Data
+    public static class WebSocket {
+        private Broker broker = new Broker();
+        private Outbound outbound = new Outbound();
+    }
+
+    public enum BrokerMode {
+        SIMPLE, RELAY
+    }
+
+    @Data
+    public static class Broker {
+        private BrokerMode mode = BrokerMode.SIMPLE;
+        private String relayHost = "localhost";
+        private Integer relayPort = 61613;
+        private String clientLogin = "guest";
+        private String clientPasscode = "guest";
+        private String systemLogin = "guest";
+        private String systemPasscode = "guest";
+        private String virtualHost;
+        private Long systemHeartbeatSendInterval = 10000L;
+        private Long systemHeartbeatReceiveInterval = 10000L;
+        private Integer maxConnections = 1000; // one relay connection per client session, plus the system session
+        private Long acquireTimeoutMs = 5000L;
+        private Integer cacheLimit = 20000; // destinations cached by the simple broker, ~one per connected session
+    }
+
+    @Data
+    public static class Outbound {
+        private Integer sendBufferSizeLimit = 64 * 1024; // bytes buffered per session before it is closed
+        private Integer sendTimeLimit = 10000; // milliseconds a single send may block
+        private Integer corePoolSize = Runtime.getRuntime().availableProcessors() * 2;
+        private Integer maxPoolSize = Runtime.getRuntime().availableProcessors() * 4;
+        private Integer queueCapacity = 10000;
+        private List<String> coalesceDestinations = new ArrayList<>(List.of("/queue/attempt-user"));
+    }
+
+    @Data
+    public static class Cluster {
+        private Boolean enabled = false;
+        private String nodeId; // defaults to host name + pid
+        private Integer partitions = 64;
+        private Integer virtualNodes = 32;
+        private Long heartbeatInterval = 5000L;
+        private Long leaseTtl = 15000L;
     }
 
     @Data
@@ -31,6 +102,26 @@ public class QuizAppProperties {
         private Long debounceMs = 2000L;
     }
 
+    @Data
+    public static class AttemptCache {
+        private Integer maxSize = 50000; // attempts whose owner, status and deadline are kept in memory
+    }
+
+    @Data
+    public static class ContentCache {
+        private Integer maxSize = 1000; // published quizzes whose questions are kept pre-rendered
+    }
+
+    @Data
+    public static class Leaderboard {
+        private Integer maxSize = 1000; // quizzes whose ranked finished attempts are kept in memory
+    }
+
+    @Data
+    public static class StatsCache {
+        private Long ttlMs = 2000L; // how long a node serves quiz statistics before re-reading them
+    }
+
     @Data
     public static class Security {
         private Password password = new Password();
@@ -0,0 +1,42 @@
+package app.quiz.glass.config;
+
+import app.quiz.glass.repositories.QuizStatsRepository;
+import app.quiz.glass.repositories.projections.QuizPassingScore;
+import app.quiz.glass.services.QuizStatsStore;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Rebuilds the statistics of quizzes with finished attempts they do not count: quizzes
+ * finished before statistics were kept, or whose row was started by a finalization that
+ * only added itself. Each quiz is rebuilt in its own transaction. A no-op once every
+ * quiz's finished count matches its attempts.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class QuizStatsBackfill {
+
+    private final QuizStatsRepository quizStatsRepository;
+    private final QuizStatsStore quizStatsStore;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void backfill() {
+        List<QuizPassingScore> quizzes = quizStatsRepository.findQuizzesWithUncountedAttempts();
+        for (QuizPassingScore quiz : quizzes) {
+            transactionTemplate.executeWithoutResult(tx ->
+                    quizStatsStore.rebuild(quiz.getQuizId(), quiz.getPassingScore()));
+        }
+        if (!quizzes.isEmpty()) {
+            log.info("Rebuilt statistics of {} quizzes", quizzes.size());
+        }
+    }
+}
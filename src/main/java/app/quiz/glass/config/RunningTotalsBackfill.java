@@ -0,0 +1,37 @@
+package app.quiz.glass.config;
+
+import app.quiz.glass.repositories.AnswerRepository;
+import app.quiz.glass.repositories.QuizAttemptRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Grades the answers of attempts that were in progress before answers were graded on
+ * save, and fills in their running totals, so finalization can rely on the totals alone.
+ * A no-op once no such attempt is left.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class RunningTotalsBackfill {
+
+    private final AnswerRepository answerRepository;
+    private final QuizAttemptRepository attemptRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void backfill() {
+        Integer attempts = transactionTemplate.execute(tx -> {
+            answerRepository.gradeUntrackedAnswers();
+            return attemptRepository.backfillRunningTotals();
+        });
+        if (attempts != null && attempts > 0) {
+            log.info("Filled running totals of {} in-progress attempts", attempts);
+        }
+    }
+}
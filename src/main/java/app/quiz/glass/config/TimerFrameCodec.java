@@ -0,0 +1,156 @@
+package app.quiz.glass.config;
+
+import app.quiz.glass.dto.timer.TimerUpdateDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes timer frames once per tick and lets clients opt into a compact form.
+ * <p>
+ * Every frame is serialized up front with a cached {@link ObjectWriter} and also carries
+ * its compact form, a numeric JSON array
+ * {@code [attemptId, serverTime, remainingMs, expiresAt, expired]}, in the
+ * {@value #COMPACT_HEADER} header. Clients that send {@code timer-encoding: compact} on
+ * CONNECT get the array as the body; everyone else gets the regular JSON. The header is
+ * stripped before the frame leaves the server either way.
+ * <p>
+ * Registered on the client outbound channel (to pick the body per session); its
+ * {@link #inbound()} side goes on the client inbound channel to record the negotiated
+ * encoding and to strip {@value #COMPACT_HEADER} from client frames, so only frames built
+ * by {@link #encode} ever carry it.
+ */
+@Component
+public class TimerFrameCodec implements ChannelInterceptor {
+
+    public static final String ENCODING_HEADER = "timer-encoding";
+    public static final String COMPACT = "compact";
+    static final String COMPACT_HEADER = "timer-compact";
+
+    private final ObjectWriter jsonWriter;
+    private final Set<String> compactSessions = ConcurrentHashMap.newKeySet();
+    private final ChannelInterceptor inbound = new ChannelInterceptor() {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            return onInbound(message);
+        }
+    };
+
+    public TimerFrameCodec(ObjectMapper objectMapper) {
+        this.jsonWriter = objectMapper.writerFor(TimerUpdateDTO.class);
+    }
+
+    /**
+     * Builds a ready-to-send timer frame; the payload is already bytes, so the messaging
+     * template does not run it through a message converter.
+     */
+    public Message<byte[]> encode(TimerUpdateDTO frame) {
+        byte[] json;
+        try {
+            json = jsonWriter.writeValueAsBytes(frame);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode timer frame", e);
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setNativeHeader(COMPACT_HEADER, compact(frame));
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+
+    /**
+     * Compact form of a frame, as a numeric array so it can be returned from a handler
+     * method and serialized as-is.
+     */
+    public static long[] compactValues(TimerUpdateDTO frame) {
+        long remainingMs = Math.max(0, frame.getExpiresAt() - frame.getServerTime());
+        return new long[]{frame.getAttemptId(), frame.getServerTime(), remainingMs,
+                frame.getExpiresAt(), Boolean.TRUE.equals(frame.getExpired()) ? 1 : 0};
+    }
+
+    public boolean isCompact(String sessionId) {
+        return sessionId != null && compactSessions.contains(sessionId);
+    }
+
+    /**
+     * The interceptor for the client inbound channel.
+     */
+    public ChannelInterceptor inbound() {
+        return inbound;
+    }
+
+    private Message<?> onInbound(Message<?> message) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        SimpMessageType type = accessor.getMessageType();
+
+        if (type == SimpMessageType.CONNECT) {
+            StompHeaderAccessor stomp = StompHeaderAccessor.wrap(message);
+            if (COMPACT.equalsIgnoreCase(stomp.getFirstNativeHeader(ENCODING_HEADER))) {
+                compactSessions.add(stomp.getSessionId());
+            }
+            return message;
+        }
+        if (type == SimpMessageType.DISCONNECT) {
+            compactSessions.remove(accessor.getSessionId());
+            return message;
+        }
+
+        // A client frame must not pass itself off as a timer frame, e.g. via a broker topic
+        if (accessor.getFirstNativeHeader(COMPACT_HEADER) == null) {
+            return message;
+        }
+        accessor.removeNativeHeader(COMPACT_HEADER);
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE) {
+            return message;
+        }
+
+        String compact = accessor.getFirstNativeHeader(COMPACT_HEADER);
+        if (compact == null) {
+            return message;
+        }
+        accessor.removeNativeHeader(COMPACT_HEADER);
+        if (!compact.startsWith("[") || compact.indexOf(',') < 0) {
+            return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+        }
+        // Frames for different attempts share the user queue; coalesce them separately
+        accessor.setHeader(OutboundFrameCoalescer.COALESCE_KEY_HEADER,
+                compact.substring(1, compact.indexOf(',')));
+        Object payload = isCompact(accessor.getSessionId())
+                ? compact.getBytes(StandardCharsets.UTF_8)
+                : message.getPayload();
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    private static String compact(TimerUpdateDTO frame) {
+        long[] values = compactValues(frame);
+        StringBuilder out = new StringBuilder(64).append('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(values[i]);
+        }
+        return out.append(']').toString();
+    }
+}
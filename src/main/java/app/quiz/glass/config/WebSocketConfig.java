@@ -1,18 +1,52 @@
 package app.quiz.glass.config;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompReactorNettyCodec;
+import org.springframework.messaging.tcp.reactor.ReactorNettyTcpClient;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.tcp.TcpClient;
+
+import java.time.Duration;
 
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final QuizAppProperties properties;
+    private final OutboundFrameCoalescer frameCoalescer;
+    private final TimerFrameCodec timerFrameCodec;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        QuizAppProperties.Broker broker = properties.getWebsocket().getBroker();
+
+        if (broker.getMode() == QuizAppProperties.BrokerMode.RELAY) {
+            // External broker, so frames produced on one node reach clients on every node
+            config.enableStompBrokerRelay("/topic", "/queue")
+                    .setClientLogin(broker.getClientLogin())
+                    .setClientPasscode(broker.getClientPasscode())
+                    .setSystemLogin(broker.getSystemLogin())
+                    .setSystemPasscode(broker.getSystemPasscode())
+                    .setVirtualHost(broker.getVirtualHost())
+                    .setSystemHeartbeatSendInterval(broker.getSystemHeartbeatSendInterval())
+                    .setSystemHeartbeatReceiveInterval(broker.getSystemHeartbeatReceiveInterval())
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry")
+                    .setTcpClient(relayTcpClient(broker));
+        } else {
+            config.enableSimpleBroker("/topic", "/queue");
+        }
+        // Every session resolves /user/queue/attempt to its own queue; size the destination
+        // cache so sends stay a cache hit instead of a scan over all subscriptions
+        config.setCacheLimit(broker.getCacheLimit());
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
@@ -23,4 +57,41 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOrigins("http://localhost:3000", "http://localhost:4200", "http://localhost:5173")
                 .withSockJS();
     }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        QuizAppProperties.Outbound outbound = properties.getWebsocket().getOutbound();
+        registration.setSendBufferSizeLimit(outbound.getSendBufferSizeLimit())
+                .setSendTimeLimit(outbound.getSendTimeLimit())
+                .addDecoratorFactory(frameCoalescer);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        QuizAppProperties.Outbound outbound = properties.getWebsocket().getOutbound();
+        registration.taskExecutor()
+                .corePoolSize(outbound.getCorePoolSize())
+                .maxPoolSize(outbound.getMaxPoolSize())
+                .queueCapacity(outbound.getQueueCapacity());
+        registration.interceptors(timerFrameCodec, frameCoalescer);
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(timerFrameCodec.inbound());
+    }
+
+    private static ReactorNettyTcpClient<byte[]> relayTcpClient(QuizAppProperties.Broker broker) {
+        // Each STOMP session holds its own broker connection; the pool caps how many are open
+        ConnectionProvider connections = ConnectionProvider.builder("stomp-broker-relay")
+                .maxConnections(broker.getMaxConnections())
+                .pendingAcquireTimeout(Duration.ofMillis(broker.getAcquireTimeoutMs()))
+                .build();
+
+        TcpClient client = TcpClient.create(connections)
+                .host(broker.getRelayHost())
+                .port(broker.getRelayPort());
+
+        return new ReactorNettyTcpClient<>(client, new StompReactorNettyCodec());
+    }
 }
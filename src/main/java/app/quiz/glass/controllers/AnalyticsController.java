@@ -1,15 +1,17 @@
 package app.quiz.glass.controllers;
 
 import app.quiz.glass.dto.analytics.QuizAnalyticsDTO;
+import app.quiz.glass.dto.analytics.ScoreDistributionDTO;
 import app.quiz.glass.dto.leaderboard.LeaderboardDTO;
-import app.quiz.glass.entities.User;
-import app.quiz.glass.security.CustomUserDetailsService;
+import app.quiz.glass.security.GlassUserPrincipal;
 import app.quiz.glass.services.AnalyticsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.security.Principal;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -18,24 +20,51 @@ import java.util.Map;
 public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
-    private final CustomUserDetailsService userDetailsService;
 
     @GetMapping("/quiz/{quizId}")
-    public ResponseEntity<QuizAnalyticsDTO> getQuizAnalytics(@PathVariable Long quizId) {
-        return ResponseEntity.ok(analyticsService.getQuizAnalytics(quizId));
+    public ResponseEntity<QuizAnalyticsDTO> getQuizAnalytics(
+            @PathVariable Long quizId,
+            @RequestParam(defaultValue = "false") boolean includeOptions) {
+
+        return ResponseEntity.ok(analyticsService.getQuizAnalytics(quizId, includeOptions));
+    }
+
+    @GetMapping("/quiz/{quizId}/distribution")
+    public ResponseEntity<ScoreDistributionDTO> getScoreDistribution(@PathVariable Long quizId) {
+        return ResponseEntity.ok(analyticsService.getScoreDistribution(quizId));
+    }
+
+    @GetMapping("/distribution")
+    public ResponseEntity<ScoreDistributionDTO> getCombinedScoreDistribution(@RequestParam List<Long> quizIds) {
+        return ResponseEntity.ok(analyticsService.getScoreDistribution(quizIds));
+    }
+
+    @PostMapping("/quiz/{quizId}/stats/rebuild")
+    @PreAuthorize("hasAnyRole('INSTRUCTOR', 'ADMIN')")
+    public ResponseEntity<QuizAnalyticsDTO> rebuildQuizStats(@PathVariable Long quizId) {
+        return ResponseEntity.ok(analyticsService.rebuildQuizStats(quizId));
     }
 
     @GetMapping("/quiz/{quizId}/leaderboard")
     public ResponseEntity<LeaderboardDTO> getLeaderboard(
             @PathVariable Long quizId,
+            @RequestParam(defaultValue = "0") int offset,
             @RequestParam(defaultValue = "10") int limit) {
 
-        return ResponseEntity.ok(analyticsService.getLeaderboard(quizId, limit));
+        return ResponseEntity.ok(analyticsService.getLeaderboard(quizId, offset, limit));
+    }
+
+    @GetMapping("/quiz/{quizId}/leaderboard/me")
+    public ResponseEntity<LeaderboardDTO> getMyLeaderboardPosition(
+            @PathVariable Long quizId,
+            @RequestParam(defaultValue = "5") int window,
+            @AuthenticationPrincipal GlassUserPrincipal user) {
+
+        return ResponseEntity.ok(analyticsService.getLeaderboardAround(quizId, user.getId(), window));
     }
 
     @GetMapping("/user/stats")
-    public ResponseEntity<Map<String, Object>> getUserStatistics(Principal principal) {
-        User user = userDetailsService.getCurrentUser(principal.getName());
+    public ResponseEntity<Map<String, Object>> getUserStatistics(@AuthenticationPrincipal GlassUserPrincipal user) {
         return ResponseEntity.ok(analyticsService.getUserStatistics(user.getId()));
     }
 }
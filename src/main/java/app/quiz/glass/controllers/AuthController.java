@@ -4,7 +4,7 @@ import app.quiz.glass.dto.security.AuthResponse;
 import app.quiz.glass.dto.security.LoginRequest;
 import app.quiz.glass.dto.security.RegisterRequest;
 import app.quiz.glass.entities.User;
-import app.quiz.glass.security.CustomUserDetailsService;
+import app.quiz.glass.security.GlassUserPrincipal;
 import app.quiz.glass.services.AuthService;
 import jakarta.servlet.http.HttpSession;
 import jakarta.validation.Valid;
@@ -16,7 +16,6 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
-import java.security.Principal;
 import java.util.Map;
 
 @RestController
@@ -26,7 +25,6 @@ public class AuthController {
 
     private final AuthService authService;
     private final AuthenticationManager authenticationManager;
-    private final CustomUserDetailsService userDetailsService;
 
     @PostMapping("/register")
     public ResponseEntity<AuthResponse> register(@Valid @RequestBody RegisterRequest request) {
@@ -50,7 +48,7 @@ public class AuthController {
 
         session.setAttribute("SPRING_SECURITY_CONTEXT", SecurityContextHolder.getContext());
 
-        User user = userDetailsService.getCurrentUser(request.getEmail());
+        GlassUserPrincipal user = (GlassUserPrincipal) authentication.getPrincipal();
         return ResponseEntity.ok(authService.buildAuthResponse(user, session.getId()));
     }
 
@@ -64,13 +62,10 @@ public class AuthController {
     @GetMapping("/me")
     public ResponseEntity<AuthResponse> getCurrentUser(Authentication authentication, HttpSession session) {
 
-        if (authentication == null || !authentication.isAuthenticated()) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof GlassUserPrincipal user)) {
             return ResponseEntity.status(401).build();
         }
 
-        String email = authentication.getName();
-        User user = userDetailsService.getCurrentUser(email);
-
         return ResponseEntity.ok(authService.buildAuthResponse(user, session.getId()));
     }
 
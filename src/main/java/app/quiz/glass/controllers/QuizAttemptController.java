@@ -2,18 +2,20 @@ package app.quiz.glass.controllers;
 
 import app.quiz.glass.dto.answer.SubmitAnswerRequest;
 import app.quiz.glass.dto.answer.SubmitAnswerResponse;
-import app.quiz.glass.dto.question.QuestionDTO;
 import app.quiz.glass.dto.quiz.StartQuizResponse;
 import app.quiz.glass.dto.result.QuizResultDTO;
-import app.quiz.glass.entities.User;
-import app.quiz.glass.security.CustomUserDetailsService;
+import app.quiz.glass.entities.AttemptResult;
+import app.quiz.glass.security.GlassUserPrincipal;
+import app.quiz.glass.services.AttemptResultStore;
 import app.quiz.glass.services.QuizAttemptService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
-
-import java.security.Principal;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/attempts")
@@ -21,51 +23,62 @@ import java.security.Principal;
 public class QuizAttemptController {
 
     private final QuizAttemptService attemptService;
-    private final CustomUserDetailsService userDetailsService;
 
     @PostMapping("/start/{quizId}")
     public ResponseEntity<StartQuizResponse> startQuiz(
             @PathVariable Long quizId,
-            Principal principal) {
+            @AuthenticationPrincipal GlassUserPrincipal user) {
 
-        User user = userDetailsService.getCurrentUser(principal.getName());
-        return ResponseEntity.ok(attemptService.startQuiz(quizId, user));
+        return ResponseEntity.ok(attemptService.startQuiz(quizId, user.getId(), user.getUsername()));
     }
 
     @GetMapping("/{attemptId}/questions/{questionIndex}")
-    public ResponseEntity<QuestionDTO> getQuestion(
+    public ResponseEntity<byte[]> getQuestion(
             @PathVariable Long attemptId,
             @PathVariable int questionIndex,
-            Principal principal) {
+            @AuthenticationPrincipal GlassUserPrincipal user) {
 
-        User user = userDetailsService.getCurrentUser(principal.getName());
-        return ResponseEntity.ok(attemptService.getQuestion(attemptId, questionIndex, user.getId()));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(attemptService.getQuestionJson(attemptId, questionIndex, user.getId()));
     }
 
     @PostMapping("/answer")
     public ResponseEntity<SubmitAnswerResponse> submitAnswer(
             @Valid @RequestBody SubmitAnswerRequest request,
-            Principal principal) {
+            @AuthenticationPrincipal GlassUserPrincipal user) {
 
-        User user = userDetailsService.getCurrentUser(principal.getName());
         return ResponseEntity.ok(attemptService.submitAnswer(request, user.getId()));
     }
 
     @PostMapping("/{attemptId}/submit")
     public ResponseEntity<QuizResultDTO> submitQuiz(
             @PathVariable Long attemptId,
-            Principal principal) {
+            @AuthenticationPrincipal GlassUserPrincipal user) {
 
-        User user = userDetailsService.getCurrentUser(principal.getName());
         return ResponseEntity.ok(attemptService.submitQuiz(attemptId, user.getId()));
     }
 
     @GetMapping("/{attemptId}/result")
-    public ResponseEntity<QuizResultDTO> getResult(
+    public ResponseEntity<byte[]> getResult(
             @PathVariable Long attemptId,
-            Principal principal) {
+            @AuthenticationPrincipal GlassUserPrincipal user,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+
+        AttemptResult result = attemptService.getQuizResultSnapshot(attemptId, user.getId());
+        if (request.checkNotModified(result.getEtag())) {
+            return null;
+        }
 
-        User user = userDetailsService.getCurrentUser(principal.getName());
-        return ResponseEntity.ok(attemptService.getQuizResult(attemptId, user.getId()));
+        // Stored gzipped; sent as stored unless the client cannot take it
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(result.getBody());
+        }
+        return response.body(AttemptResultStore.gunzip(result.getBody()));
     }
 }
@@ -5,17 +5,16 @@ import app.quiz.glass.dto.question.CreateQuestionRequest;
 import app.quiz.glass.dto.question.QuestionDTO;
 import app.quiz.glass.dto.quiz.CreateQuizRequest;
 import app.quiz.glass.dto.quiz.QuizDTO;
-import app.quiz.glass.entities.User;
-import app.quiz.glass.security.CustomUserDetailsService;
+import app.quiz.glass.security.GlassUserPrincipal;
 import app.quiz.glass.services.QuestionService;
 import app.quiz.glass.services.QuizService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
-import java.security.Principal;
-
 @RestController
 @RequestMapping("/quizzes")
 @RequiredArgsConstructor
@@ -23,15 +22,13 @@ public class QuizController {
 
     private final QuizService quizService;
     private final QuestionService questionService;
-    private final CustomUserDetailsService userDetailsService;
 
     @PostMapping
     public ResponseEntity<QuizDTO> createQuiz(
             @Valid @RequestBody CreateQuizRequest request,
-            Principal principal) {
+            @AuthenticationPrincipal GlassUserPrincipal user) {
 
-        User user = userDetailsService.getCurrentUser(principal.getName());
-        var quiz = quizService.createQuiz(request, user);
+        var quiz = quizService.createQuiz(request, user.getId());
         return ResponseEntity.ok(quizService.getQuizById(quiz.getId(), user.getId()));
     }
 
@@ -39,27 +36,24 @@ public class QuizController {
     public ResponseEntity<PageResponse<QuizDTO>> getActiveQuizzes(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
-            Principal principal) {
+            @AuthenticationPrincipal GlassUserPrincipal user) {
 
-        User user = userDetailsService.getCurrentUser(principal.getName());
         return ResponseEntity.ok(quizService.getActiveQuizzes(page, size, user.getId()));
     }
 
     @GetMapping("/{quizId}")
     public ResponseEntity<QuizDTO> getQuiz(
             @PathVariable Long quizId,
-            Principal principal) {
+            @AuthenticationPrincipal GlassUserPrincipal user) {
 
-        User user = userDetailsService.getCurrentUser(principal.getName());
         return ResponseEntity.ok(quizService.getQuizById(quizId, user.getId()));
     }
 
     @PostMapping("/{quizId}/publish")
     public ResponseEntity<QuizDTO> publishQuiz(
             @PathVariable Long quizId,
-            Principal principal) {
+            @AuthenticationPrincipal GlassUserPrincipal user) {
 
-        User user = userDetailsService.getCurrentUser(principal.getName());
         var quiz = quizService.publishQuiz(quizId);
         return ResponseEntity.ok(quizService.getQuizById(quiz.getId(), user.getId()));
     }
@@ -78,10 +72,12 @@ public class QuizController {
     }
 
     @GetMapping("/{quizId}/questions")
-    public ResponseEntity<?> getQuestions(
+    public ResponseEntity<byte[]> getQuestions(
             @PathVariable Long quizId,
             @RequestParam(defaultValue = "false") boolean includeAnswers) {
 
-        return ResponseEntity.ok(questionService.getQuizQuestions(quizId, includeAnswers));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(questionService.getQuizQuestionsJson(quizId, includeAnswers));
     }
 }
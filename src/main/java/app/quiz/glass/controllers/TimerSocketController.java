@@ -0,0 +1,30 @@
+package app.quiz.glass.controllers;
+
+import app.quiz.glass.config.TimerFrameCodec;
+import app.quiz.glass.dto.timer.TimerUpdateDTO;
+import app.quiz.glass.services.TimerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+
+@Controller
+@RequiredArgsConstructor
+public class TimerSocketController {
+
+    private final TimerService timerService;
+
+    private final TimerFrameCodec frameCodec;
+
+    @SubscribeMapping("/timer/{attemptId}")
+    public Object subscribeTimer(@DestinationVariable Long attemptId, Principal principal,
+                                 SimpMessageHeaderAccessor headers) {
+        TimerUpdateDTO frame = timerService.anchorFrame(attemptId, principal.getName());
+        return frameCodec.isCompact(headers.getSessionId())
+                ? TimerFrameCodec.compactValues(frame)
+                : frame;
+    }
+}
@@ -0,0 +1,17 @@
+package app.quiz.glass.dto.analytics;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class OptionAnalyticsDTO {
+    private Long optionId;
+    private String optionText;
+    private Boolean isCorrect;
+    private Integer selections;
+    private Integer topSelections;
+    private Integer bottomSelections;
+    // Share of the top cohort choosing the option minus that of the bottom cohort
+    private Double discrimination;
+}
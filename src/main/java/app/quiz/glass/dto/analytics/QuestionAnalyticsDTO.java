@@ -3,6 +3,8 @@ package app.quiz.glass.dto.analytics;
 import lombok.Builder;
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 @Builder
 public class QuestionAnalyticsDTO {
@@ -12,4 +14,6 @@ public class QuestionAnalyticsDTO {
     private Integer correctAttempts;
     private Double successRate;
     private Integer averagePoints;
+    // Only when requested, and not for NUMERICAL questions
+    private List<OptionAnalyticsDTO> options;
 }
@@ -14,8 +14,11 @@ public class QuizAnalyticsDTO {
     private Integer submittedAttempts;
     private Integer inProgressAttempts;
     private Double averageScore;
+    private Double scoreStdDev;
     private Double passRate;
     private Integer highestScore;
     private Integer lowestScore;
+    // Attempts in each of the top and bottom cohorts of the option analysis
+    private Integer cohortSize;
     private List<QuestionAnalyticsDTO> questionAnalytics;
 }
@@ -0,0 +1,20 @@
+package app.quiz.glass.dto.analytics;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class ScoreDistributionDTO {
+    private List<Long> quizIds;
+    private Long finishedAttempts;
+    // Attempts per whole score percentage, index 0 to 100
+    private List<Long> histogram;
+    private Integer p10;
+    private Integer p25;
+    private Integer median;
+    private Integer p75;
+    private Integer p90;
+}
@@ -12,4 +12,6 @@ public class LeaderboardDTO {
     private String quizTitle;
     private List<LeaderboardEntryDTO> entries;
     private Integer totalParticipants;
+    // Only on the page around the current user; null if they have not finished the quiz
+    private Integer myRank;
 }
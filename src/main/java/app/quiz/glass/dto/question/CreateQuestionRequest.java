@@ -2,6 +2,7 @@ package app.quiz.glass.dto.question;
 
 import app.quiz.glass.entities.QuestionType;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -26,4 +27,8 @@ public class CreateQuestionRequest {
     private Integer points = 1;
 
     private List<CreateOptionRequest> options = new ArrayList<>();
+
+    // NUMERICAL only; defaults to 0.01
+    @Positive
+    private Double numericTolerance;
 }
@@ -7,8 +7,10 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "answers", indexes = {
-        @Index(name = "idx_answer_attempt", columnList = "attempt_id"),
+@Table(name = "answers", uniqueConstraints = {
+        // One row per question per attempt; also serves lookups by attempt
+        @UniqueConstraint(name = "uk_answer_attempt_question", columnNames = {"attempt_id", "question_id"})
+}, indexes = {
         @Index(name = "idx_answer_question", columnList = "question_id")
 })
 @Getter
@@ -17,8 +19,12 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 public class Answer {
+    // Also used by AnswerIds, which allocates ids for native upserts from the same sequence
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "answers_seq")
+    @SequenceGenerator(name = "answers_seq", sequenceName = "answers_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
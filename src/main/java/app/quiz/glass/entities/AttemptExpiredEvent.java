@@ -1,14 +1,16 @@
 package app.quiz.glass.entities;
 
+/**
+ * Every attempt whose timer expired in the same tick, published as one event.
+ */
 public class AttemptExpiredEvent {
-    private final Long attemptId;
+    private final long[] attemptIds;
 
-    public AttemptExpiredEvent(Long attemptId) {
-        this.attemptId = attemptId;
+    public AttemptExpiredEvent(long[] attemptIds) {
+        this.attemptIds = attemptIds;
     }
 
-    public Long getAttemptId() {
-        return attemptId;
+    public long[] getAttemptIds() {
+        return attemptIds;
     }
 }
-
@@ -0,0 +1,36 @@
+package app.quiz.glass.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * The result of a finished attempt, rendered once as gzipped JSON. A finished attempt
+ * never changes, so the snapshot is served as-is with its content hash as ETag.
+ */
+@Entity
+@Table(name = "attempt_results")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AttemptResult {
+
+    @Id
+    private Long attemptId;
+
+    // Owner, so a result can be read and authorized in one lookup
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false, length = 64)
+    private String etag;
+
+    @Column(nullable = false)
+    private byte[] body;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
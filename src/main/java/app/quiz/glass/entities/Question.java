@@ -15,7 +15,8 @@ import java.util.List;
 @Builder
 public class Question {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "questions_seq")
+    @SequenceGenerator(name = "questions_seq", sequenceName = "questions_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -38,6 +39,9 @@ public class Question {
     @Column(nullable = false)
     private Integer orderIndex;
 
+    // NUMERICAL only: accepted distance from a correct value; null means 0.01
+    private Double numericTolerance;
+
     @Builder.Default
     @OneToMany(mappedBy = "question", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("orderIndex ASC")
@@ -12,7 +12,8 @@ import lombok.*;
 @Builder
 public class QuestionOption {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_options_seq")
+    @SequenceGenerator(name = "question_options_seq", sequenceName = "question_options_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,34 @@
+package app.quiz.glass.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Running answer counts of a question over its quiz's finished attempts.
+ */
+@Entity
+@Table(name = "question_stats", indexes = {
+        @Index(name = "idx_question_stats_quiz", columnList = "quiz_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QuestionStats {
+
+    @Id
+    private Long questionId;
+
+    @Column(nullable = false)
+    private Long quizId;
+
+    @Column(nullable = false)
+    private Long answerCount;
+
+    @Column(nullable = false)
+    private Long correctCount;
+
+    @Column(nullable = false)
+    private Long pointsSum;
+}
@@ -10,7 +10,8 @@ import java.util.List;
 @Entity
 @Table(name = "quiz_attempts", indexes = {
         @Index(name = "idx_attempt_user_quiz", columnList = "user_id,quiz_id"),
-        @Index(name = "idx_attempt_status", columnList = "status")
+        @Index(name = "idx_attempt_status", columnList = "status"),
+        @Index(name = "idx_attempt_quiz_status", columnList = "quiz_id,status")
 })
 @Getter
 @Setter
@@ -19,7 +20,8 @@ import java.util.List;
 @Builder
 public class QuizAttempt {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "quiz_attempts_seq")
+    @SequenceGenerator(name = "quiz_attempts_seq", sequenceName = "quiz_attempts_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -46,6 +48,9 @@ public class QuizAttempt {
 
     private Integer totalPoints;
 
+    // Running while in progress; score and totalPoints are kept current as answers are graded
+    private Integer answeredCount;
+
     @Column(nullable = false)
     private Integer currentQuestionIndex = 0;
 
@@ -0,0 +1,37 @@
+package app.quiz.glass.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Number of a quiz's finished attempts that scored a given whole percentage.
+ */
+@Entity
+@Table(name = "quiz_score_buckets")
+@IdClass(QuizScoreBucket.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QuizScoreBucket {
+
+    @Id
+    private Long quizId;
+
+    @Id
+    private Integer percent;
+
+    @Column(nullable = false)
+    private Long attemptCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long quizId;
+        private Integer percent;
+    }
+}
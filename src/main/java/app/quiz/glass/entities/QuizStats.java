@@ -0,0 +1,51 @@
+package app.quiz.glass.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running statistics of a quiz's finished attempts, added to as attempts are finalized.
+ * Sums rather than averages so additions stay exact and commutative.
+ */
+@Entity
+@Table(name = "quiz_stats")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class QuizStats {
+
+    @Id
+    private Long quizId;
+
+    @Column(nullable = false)
+    private Long finishedCount;
+
+    @Column(nullable = false)
+    private Long scoreSum;
+
+    @Column(nullable = false)
+    private Long scoreSquareSum;
+
+    // Null until an attempt has finished
+    private Integer minScore;
+
+    private Integer maxScore;
+
+    @Column(nullable = false)
+    private Long passCount;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    // Bumped by every transaction that adds attempts and by every rebuild; null on rows
+    // from before it was kept
+    private Long version;
+
+    public long currentVersion() {
+        return version != null ? version : 0;
+    }
+}
@@ -0,0 +1,25 @@
+package app.quiz.glass.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "timer_partition_leases")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TimerPartitionLease {
+
+    @Id
+    private Integer partitionId;
+
+    @Column(length = 100)
+    private String ownerId;
+
+    @Column(nullable = false)
+    private LocalDateTime leaseExpiresAt;
+}
@@ -1,24 +1,100 @@
 package app.quiz.glass.repositories;
 
 import app.quiz.glass.entities.Answer;
+import app.quiz.glass.repositories.projections.AnswerSelection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface AnswerRepository extends JpaRepository<Answer, Long> {
-    Optional<Answer> findByAttemptIdAndQuestionId(Long attemptId, Long questionId);
+
+    /**
+     * Inserts a graded answer or replaces the selection and grade of the existing one, and
+     * moves the attempt's running totals by the difference, in one statement: the score by
+     * the new points minus those of the replaced answer, the total points and answered
+     * count only for a first answer to the question. Changes rather than totals keep the
+     * row right whichever node saved each answer; the caller holds the attempt's row lock,
+     * so the replaced answer read here is the latest. Nothing is written unless the attempt
+     * is still in progress, and then 0 is returned. The original {@code answered_at} is kept
+     * on update. The id comes from {@code AnswerIds} and is only used for a new row.
+     */
+    String UPSERT_ANSWER = "WITH previous AS (SELECT points_earned FROM answers " +
+            "    WHERE attempt_id = :attemptId AND question_id = :questionId), " +
+            "saved AS (INSERT INTO answers (id, attempt_id, question_id, selected_option_id, " +
+            "    numerical_answer, is_correct, points_earned, answered_at, last_modified_at) " +
+            "    SELECT :id, qa.id, :questionId, CAST(:selectedOptionId AS bigint), " +
+            "    CAST(:numericalAnswer AS double precision), :correct, :pointsEarned, :answeredAt, :lastModifiedAt " +
+            "    FROM quiz_attempts qa WHERE qa.id = :attemptId AND qa.status = 'IN_PROGRESS' " +
+            "    ON CONFLICT (attempt_id, question_id) DO UPDATE SET " +
+            "    selected_option_id = EXCLUDED.selected_option_id, " +
+            "    numerical_answer = EXCLUDED.numerical_answer, " +
+            "    is_correct = EXCLUDED.is_correct, " +
+            "    points_earned = EXCLUDED.points_earned, " +
+            "    last_modified_at = EXCLUDED.last_modified_at) " +
+            "UPDATE quiz_attempts SET current_question_index = :position, " +
+            "score = COALESCE(score, 0) + :pointsEarned - COALESCE((SELECT points_earned FROM previous), 0), " +
+            "total_points = COALESCE(total_points, 0) + " +
+            "    CASE WHEN EXISTS (SELECT 1 FROM previous) THEN 0 ELSE :questionPoints END, " +
+            "answered_count = COALESCE(answered_count, 0) + " +
+            "    CASE WHEN EXISTS (SELECT 1 FROM previous) THEN 0 ELSE 1 END " +
+            "WHERE id = :attemptId AND status = 'IN_PROGRESS'";
 
     List<Answer> findByAttemptId(Long attemptId);
 
+    @Modifying
+    @Query(value = UPSERT_ANSWER, nativeQuery = true)
+    int upsertAnswer(@Param("id") Long id,
+                     @Param("attemptId") Long attemptId,
+                     @Param("position") int position,
+                     @Param("questionId") Long questionId,
+                     @Param("selectedOptionId") Long selectedOptionId,
+                     @Param("numericalAnswer") Double numericalAnswer,
+                     @Param("correct") boolean correct,
+                     @Param("pointsEarned") int pointsEarned,
+                     @Param("questionPoints") int questionPoints,
+                     @Param("answeredAt") LocalDateTime answeredAt,
+                     @Param("lastModifiedAt") LocalDateTime lastModifiedAt);
+
+    @Query(value = "SELECT id AS id, question_id AS questionId, selected_option_id AS selectedOptionId, " +
+            "numerical_answer AS numericalAnswer FROM answers WHERE attempt_id = :attemptId", nativeQuery = true)
+    List<AnswerSelection> findSelectionsByAttemptId(@Param("attemptId") Long attemptId);
+
     @Query("SELECT COUNT(a) FROM Answer a WHERE a.attempt.id = :attemptId " +
             "AND a.isCorrect = true")
     long countCorrectAnswers(@Param("attemptId") Long attemptId);
 
     @Query("SELECT SUM(a.pointsEarned) FROM Answer a WHERE a.attempt.id = :attemptId")
     Integer sumPointsEarned(@Param("attemptId") Long attemptId);
+
+    /**
+     * Grades, in one statement, the answers of in-progress attempts started before answers
+     * were graded on save. Same rules as {@link app.quiz.glass.services.AnswerKey}:
+     * MCQ/TRUE_FALSE by the selected option, NUMERICAL within the question's tolerance of
+     * any correct option that parses as a number.
+     */
+    @Modifying
+    @Query(value = "UPDATE answers a SET is_correct = g.correct, " +
+            "points_earned = CASE WHEN g.correct THEN g.points ELSE 0 END " +
+            "FROM (SELECT x.id, q.points, " +
+            "      CASE WHEN q.type = 'NUMERICAL' THEN x.numerical_answer IS NOT NULL AND EXISTS (" +
+            "          SELECT 1 FROM question_options o " +
+            "          WHERE o.question_id = q.id AND o.is_correct " +
+            "          AND CASE WHEN o.option_text ~ '^\\s*[-+]?([0-9]+\\.?[0-9]*|\\.[0-9]+)([eE][-+]?[0-9]+)?\\s*$' " +
+            "              THEN ABS(CAST(o.option_text AS double precision) - x.numerical_answer) " +
+            "                   < COALESCE(q.numeric_tolerance, 0.01) " +
+            "              ELSE false END) " +
+            "      ELSE COALESCE(so.is_correct, false) END AS correct " +
+            "      FROM answers x " +
+            "      JOIN quiz_attempts qa ON qa.id = x.attempt_id " +
+            "      JOIN questions q ON q.id = x.question_id " +
+            "      LEFT JOIN question_options so ON so.id = x.selected_option_id " +
+            "      WHERE qa.status = 'IN_PROGRESS' AND qa.answered_count IS NULL) g " +
+            "WHERE a.id = g.id", nativeQuery = true)
+    int gradeUntrackedAnswers();
 }
@@ -0,0 +1,28 @@
+package app.quiz.glass.repositories;
+
+import app.quiz.glass.entities.AttemptResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface AttemptResultRepository extends JpaRepository<AttemptResult, Long> {
+
+    Optional<AttemptResult> findByAttemptIdAndUserId(Long attemptId, Long userId);
+
+    // Two first views racing render the same snapshot; the first one stored wins
+    @Modifying
+    @Query(value = "INSERT INTO attempt_results (attempt_id, user_id, etag, body, created_at) " +
+            "VALUES (:attemptId, :userId, :etag, :body, :createdAt) " +
+            "ON CONFLICT (attempt_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("attemptId") Long attemptId,
+                       @Param("userId") Long userId,
+                       @Param("etag") String etag,
+                       @Param("body") byte[] body,
+                       @Param("createdAt") LocalDateTime createdAt);
+}
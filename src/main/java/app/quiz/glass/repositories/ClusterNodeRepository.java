@@ -0,0 +1,33 @@
+package app.quiz.glass.repositories;
+
+import app.quiz.glass.entities.ClusterNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// Heartbeats are stamped with the database clock so node clock skew cannot fake liveness
+@Repository
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO cluster_nodes (node_id, heartbeat_at) VALUES (:nodeId, LOCALTIMESTAMP) " +
+            "ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = EXCLUDED.heartbeat_at", nativeQuery = true)
+    void heartbeat(@Param("nodeId") String nodeId);
+
+    @Query(value = "SELECT node_id FROM cluster_nodes " +
+            "WHERE heartbeat_at > LOCALTIMESTAMP - :ttlMs * INTERVAL '1 millisecond' " +
+            "ORDER BY node_id", nativeQuery = true)
+    List<String> findLiveNodeIds(@Param("ttlMs") long ttlMs);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM cluster_nodes " +
+            "WHERE heartbeat_at < LOCALTIMESTAMP - :ttlMs * INTERVAL '1 millisecond'", nativeQuery = true)
+    int deleteDeadNodes(@Param("ttlMs") long ttlMs);
+}
@@ -1,6 +1,8 @@
 package app.quiz.glass.repositories;
 
 import app.quiz.glass.entities.Question;
+import app.quiz.glass.repositories.projections.OptionSelectionStats;
+import app.quiz.glass.repositories.projections.QuestionAnswerStats;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -17,6 +19,45 @@ public interface QuestionRepository extends JpaRepository<Question, Long> {
     List<Question> findByQuizIdWithOptions(@Param("quizId") Long quizId);
 
     long countByQuizId(Long quizId);
+
+    /**
+     * Per-question answer counts over the quiz's finished attempts, in question order.
+     */
+    @Query(value = "SELECT q.id AS questionId, " +
+            "COUNT(a.id) AS totalAnswers, COUNT(a.id) FILTER (WHERE a.is_correct) AS correctAnswers, " +
+            "COALESCE(SUM(a.points_earned), 0) AS pointsSum " +
+            "FROM questions q " +
+            "LEFT JOIN (answers a JOIN quiz_attempts qa ON qa.id = a.attempt_id " +
+            "    AND qa.status IN ('SUBMITTED', 'AUTO_SUBMITTED')) ON a.question_id = q.id " +
+            "WHERE q.quiz_id = :quizId " +
+            "GROUP BY q.id, q.order_index ORDER BY q.order_index", nativeQuery = true)
+    List<QuestionAnswerStats> findAnswerStatsByQuizId(@Param("quizId") Long quizId);
+
+    /**
+     * Selections of every option of the quiz over its finished attempts, in one pass over
+     * their answers. The top and bottom cohorts are the highest- and lowest-scoring 27% of
+     * those attempts (ties broken by attempt id), kept disjoint for small quizzes.
+     */
+    @Query(value = "WITH ranked AS (" +
+            "    SELECT id, ROW_NUMBER() OVER (ORDER BY score DESC, id) AS position, COUNT(*) OVER () AS finished " +
+            "    FROM quiz_attempts WHERE quiz_id = :quizId AND status IN ('SUBMITTED', 'AUTO_SUBMITTED')), " +
+            "cohorts AS (" +
+            "    SELECT id, position, finished, LEAST(CEIL(finished * 0.27), FLOOR(finished / 2)) AS cohort_size " +
+            "    FROM ranked), " +
+            "picks AS (" +
+            "    SELECT a.selected_option_id AS option_id, COUNT(*) AS selections, " +
+            "    COUNT(*) FILTER (WHERE c.position <= c.cohort_size) AS top_selections, " +
+            "    COUNT(*) FILTER (WHERE c.position > c.finished - c.cohort_size) AS bottom_selections " +
+            "    FROM answers a JOIN cohorts c ON c.id = a.attempt_id " +
+            "    WHERE a.selected_option_id IS NOT NULL GROUP BY a.selected_option_id) " +
+            "SELECT o.question_id AS questionId, o.id AS optionId, " +
+            "COALESCE(p.selections, 0) AS selections, COALESCE(p.top_selections, 0) AS topSelections, " +
+            "COALESCE(p.bottom_selections, 0) AS bottomSelections, " +
+            "(SELECT COALESCE(MAX(cohort_size), 0) FROM cohorts) AS cohortSize " +
+            "FROM question_options o JOIN questions q ON q.id = o.question_id " +
+            "LEFT JOIN picks p ON p.option_id = o.id " +
+            "WHERE q.quiz_id = :quizId ORDER BY q.order_index, o.order_index", nativeQuery = true)
+    List<OptionSelectionStats> findOptionStatsByQuizId(@Param("quizId") Long quizId);
 }
 
 
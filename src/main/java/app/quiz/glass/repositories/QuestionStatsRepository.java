@@ -0,0 +1,35 @@
+package app.quiz.glass.repositories;
+
+import app.quiz.glass.entities.QuestionStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface QuestionStatsRepository extends JpaRepository<QuestionStats, Long> {
+
+    String ADD_ON_CONFLICT = " ON CONFLICT (question_id) DO UPDATE SET " +
+            "answer_count = question_stats.answer_count + EXCLUDED.answer_count, " +
+            "correct_count = question_stats.correct_count + EXCLUDED.correct_count, " +
+            "points_sum = question_stats.points_sum + EXCLUDED.points_sum";
+
+    List<QuestionStats> findByQuizId(Long quizId);
+
+    // Rows are locked in question id order, as in every other addition
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO question_stats (question_id, quiz_id, answer_count, correct_count, points_sum) " +
+            "SELECT question_id, :quizId, COUNT(*), COUNT(*) FILTER (WHERE is_correct), " +
+            "COALESCE(SUM(points_earned), 0) " +
+            "FROM answers WHERE attempt_id IN (:attemptIds) " +
+            "GROUP BY question_id ORDER BY question_id" + ADD_ON_CONFLICT, nativeQuery = true)
+    int addAttemptAnswers(@Param("quizId") Long quizId, @Param("attemptIds") Collection<Long> attemptIds);
+
+    @Modifying
+    @Query("DELETE FROM QuestionStats s WHERE s.quizId = :quizId")
+    int deleteByQuizId(@Param("quizId") Long quizId);
+}
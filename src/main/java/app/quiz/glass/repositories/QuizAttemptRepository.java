@@ -3,21 +3,47 @@ package app.quiz.glass.repositories;
 
 import app.quiz.glass.entities.AttemptStatus;
 import app.quiz.glass.entities.QuizAttempt;
+import app.quiz.glass.repositories.projections.AttemptDeadline;
+import app.quiz.glass.repositories.projections.AttemptTotals;
+import app.quiz.glass.repositories.projections.LeaderboardRow;
+import app.quiz.glass.repositories.projections.QuizAttemptSummary;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface QuizAttemptRepository extends JpaRepository<QuizAttempt, Long> {
+
     Optional<QuizAttempt> findByIdAndUserId(Long id, Long userId);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT qa FROM QuizAttempt qa WHERE qa.id = :id")
+    Optional<QuizAttempt> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * The attempt's running totals as stored, bypassing the persistence context; answer
+     * saves move them with plain SQL.
+     */
+    @Query(value = "SELECT score AS score, total_points AS totalPoints, answered_count AS answeredCount " +
+            "FROM quiz_attempts WHERE id = :id", nativeQuery = true)
+    AttemptTotals findTotalsById(@Param("id") Long id);
+
     @Query("SELECT qa FROM QuizAttempt qa WHERE qa.user.id = :userId " +
             "AND qa.quiz.id = :quizId AND qa.status = 'IN_PROGRESS'")
     Optional<QuizAttempt> findActiveAttempt(@Param("userId") Long userId,
@@ -27,15 +53,116 @@ public interface QuizAttemptRepository extends JpaRepository<QuizAttempt, Long>
 
     Page<QuizAttempt> findByQuizId(Long quizId, Pageable pageable);
 
-    @Query("SELECT qa FROM QuizAttempt qa WHERE qa.status = 'IN_PROGRESS' " +
-            "AND qa.expiresAt <= :now")
-    List<QuizAttempt> findExpiredAttempts(@Param("now") LocalDateTime now);
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT qa.id AS id, qa.expiresAt AS expiresAt, qa.user.email AS userName FROM QuizAttempt qa " +
+            "WHERE qa.status = 'IN_PROGRESS' AND qa.expiresAt > :now")
+    Stream<AttemptDeadline> streamActiveDeadlines(@Param("now") LocalDateTime now);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT qa.id AS id, qa.expiresAt AS expiresAt, qa.user.email AS userName FROM QuizAttempt qa " +
+            "WHERE qa.status = 'IN_PROGRESS' AND qa.expiresAt > :now " +
+            "AND qa.startedAt >= :startedSince AND MOD(qa.id, :partitionCount) IN :partitions")
+    Stream<AttemptDeadline> streamActiveDeadlines(@Param("now") LocalDateTime now,
+                                                  @Param("startedSince") LocalDateTime startedSince,
+                                                  @Param("partitionCount") long partitionCount,
+                                                  @Param("partitions") Collection<Long> partitions);
+
+    @Query("SELECT qa.id AS id, qa.expiresAt AS expiresAt, qa.user.email AS userName FROM QuizAttempt qa " +
+            "WHERE qa.id = :id AND qa.status = 'IN_PROGRESS'")
+    Optional<AttemptDeadline> findActiveDeadline(@Param("id") Long id);
+
+    @Query(value = "SELECT id FROM quiz_attempts WHERE status = 'IN_PROGRESS' " +
+            "AND expires_at <= :now ORDER BY expires_at LIMIT :limit " +
+            "FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> claimExpiredAttempts(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Attempts cut off by the quiz end time are left to the bulk close-out
+    @Query(value = "SELECT qa.id FROM quiz_attempts qa WHERE qa.id IN (:ids) " +
+            "AND qa.status = 'IN_PROGRESS' AND qa.expires_at < " +
+            "(SELECT q.end_time FROM quizzes q WHERE q.id = qa.quiz_id) " +
+            "FOR UPDATE OF qa SKIP LOCKED", nativeQuery = true)
+    List<Long> claimInProgressAttempts(@Param("ids") Collection<Long> ids);
 
-    @Query("SELECT qa FROM QuizAttempt qa WHERE qa.quiz.id = :quizId " +
-            "AND qa.status IN ('SUBMITTED', 'AUTO_SUBMITTED') " +
-            "ORDER BY qa.score DESC, qa.submittedAt ASC")
-    List<QuizAttempt> findLeaderboard(@Param("quizId") Long quizId, Pageable pageable);
+    @Query("SELECT DISTINCT qa.quiz.id FROM QuizAttempt qa WHERE qa.status = 'IN_PROGRESS' " +
+            "AND qa.quiz.endTime <= :now")
+    List<Long> findClosedQuizzesWithOpenAttempts(@Param("now") LocalDateTime now);
+
+    // Waits for the attempt's row lock, as a finalizer would, whatever its status
+    @Query(value = "SELECT qa.id FROM quiz_attempts qa WHERE qa.id = :id FOR NO KEY UPDATE", nativeQuery = true)
+    Long lockAttempt(@Param("id") Long id);
+
+    /**
+     * Locks the attempts for an answer flush, whatever their status, skipping rows another
+     * transaction holds; returns the locked ids in id order.
+     */
+    @Query(value = "SELECT qa.id FROM quiz_attempts qa WHERE qa.id IN (:ids) ORDER BY qa.id " +
+            "FOR NO KEY UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockUnheldAttempts(@Param("ids") Collection<Long> ids);
+
+    @Query(value = "SELECT qa.id AS id, qa.expires_at AS expiresAt, u.email AS userName " +
+            "FROM quiz_attempts qa JOIN users u ON u.id = qa.user_id " +
+            "WHERE qa.quiz_id = :quizId AND qa.status = 'IN_PROGRESS' ORDER BY qa.id FOR UPDATE OF qa", nativeQuery = true)
+    List<AttemptDeadline> lockInProgressAttempts(@Param("quizId") Long quizId);
+
+    /**
+     * Auto-submits the quiz's in-progress attempts, keeping their running totals as the
+     * final score.
+     */
+    @Modifying
+    @Query(value = "UPDATE quiz_attempts SET status = 'AUTO_SUBMITTED', submitted_at = :now, " +
+            "score = COALESCE(score, 0), total_points = COALESCE(total_points, 0) " +
+            "WHERE quiz_id = :quizId AND status = 'IN_PROGRESS'", nativeQuery = true)
+    int finalizeInProgressAttempts(@Param("quizId") Long quizId, @Param("now") LocalDateTime now);
+
+    /**
+     * Fills the running totals of in-progress attempts started before they were tracked,
+     * from their graded answers.
+     */
+    @Modifying
+    @Query(value = "UPDATE quiz_attempts qa SET score = t.score, total_points = t.total_points, " +
+            "answered_count = t.answered_count " +
+            "FROM (SELECT x.id, COALESCE(SUM(a.points_earned), 0) AS score, " +
+            "      COALESCE(SUM(q.points), 0) AS total_points, COUNT(a.id) AS answered_count " +
+            "      FROM quiz_attempts x " +
+            "      LEFT JOIN answers a ON a.attempt_id = x.id " +
+            "      LEFT JOIN questions q ON q.id = a.question_id " +
+            "      WHERE x.status = 'IN_PROGRESS' AND x.answered_count IS NULL " +
+            "      GROUP BY x.id) t " +
+            "WHERE qa.id = t.id", nativeQuery = true)
+    int backfillRunningTotals();
+
+    /**
+     * Every finished attempt of the quiz with its user's name, unordered, each with the
+     * version of the quiz's statistics row read in the same statement. The quiz must have
+     * a statistics row; without finished attempts a single row with a null attempt id is
+     * returned.
+     */
+    @Query(value = "SELECT qa.id AS attemptId, qa.user_id AS userId, u.full_name AS userName, " +
+            "COALESCE(qa.score, 0) AS score, COALESCE(qa.total_points, 0) AS totalPoints, " +
+            "qa.submitted_at AS submittedAt, COALESCE(s.version, 0) AS statsVersion " +
+            "FROM quiz_stats s " +
+            "LEFT JOIN quiz_attempts qa ON qa.quiz_id = s.quiz_id " +
+            "    AND qa.status IN ('SUBMITTED', 'AUTO_SUBMITTED') " +
+            "LEFT JOIN users u ON u.id = qa.user_id " +
+            "WHERE s.quiz_id = :quizId", nativeQuery = true)
+    List<LeaderboardRow> findLeaderboardRows(@Param("quizId") Long quizId);
 
     long countByQuizIdAndStatus(Long quizId, AttemptStatus status);
+
+    /**
+     * Attempt counts and score figures of a quiz in one pass. An attempt passes when its
+     * percentage (0 without points) reaches {@code passingScore}.
+     */
+    @Query(value = "SELECT COUNT(*) AS totalAttempts, " +
+            "COUNT(*) FILTER (WHERE status IN ('SUBMITTED', 'AUTO_SUBMITTED')) AS submittedAttempts, " +
+            "COUNT(*) FILTER (WHERE status = 'IN_PROGRESS') AS inProgressAttempts, " +
+            "COALESCE(SUM(score) FILTER (WHERE status IN ('SUBMITTED', 'AUTO_SUBMITTED')), 0) AS scoreSum, " +
+            "COALESCE(SUM(CAST(score AS bigint) * score) FILTER (WHERE status IN ('SUBMITTED', 'AUTO_SUBMITTED')), 0) AS scoreSquareSum, " +
+            "MAX(score) FILTER (WHERE status IN ('SUBMITTED', 'AUTO_SUBMITTED')) AS highestScore, " +
+            "MIN(score) FILTER (WHERE status IN ('SUBMITTED', 'AUTO_SUBMITTED')) AS lowestScore, " +
+            "COUNT(*) FILTER (WHERE status IN ('SUBMITTED', 'AUTO_SUBMITTED') " +
+            "    AND CASE WHEN total_points > 0 THEN score * 100.0 / total_points ELSE 0 END >= :passingScore) AS passedCount " +
+            "FROM quiz_attempts WHERE quiz_id = :quizId", nativeQuery = true)
+    QuizAttemptSummary summarizeQuiz(@Param("quizId") Long quizId, @Param("passingScore") int passingScore);
 }
 
@@ -0,0 +1,44 @@
+package app.quiz.glass.repositories;
+
+import app.quiz.glass.entities.QuizScoreBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Buckets are computed like {@code ScoreHistogram.bucketOf}.
+ */
+@Repository
+public interface QuizScoreBucketRepository extends JpaRepository<QuizScoreBucket, QuizScoreBucket.Key> {
+
+    String BUCKET = "CASE WHEN total_points > 0 " +
+            "THEN LEAST(100, GREATEST(0, COALESCE(score, 0) * 100 / total_points)) ELSE 0 END";
+
+    String ADD_ON_CONFLICT = " ON CONFLICT (quiz_id, percent) DO UPDATE SET " +
+            "attempt_count = quiz_score_buckets.attempt_count + EXCLUDED.attempt_count";
+
+    List<QuizScoreBucket> findByQuizId(Long quizId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO quiz_score_buckets (quiz_id, percent, attempt_count) " +
+            "SELECT :quizId, " + BUCKET + ", COUNT(*) FROM quiz_attempts " +
+            "WHERE id IN (:attemptIds) " +
+            "GROUP BY 2 ORDER BY 2" + ADD_ON_CONFLICT, nativeQuery = true)
+    int addAttempts(@Param("quizId") Long quizId, @Param("attemptIds") Collection<Long> attemptIds);
+
+    @Modifying
+    @Query(value = "INSERT INTO quiz_score_buckets (quiz_id, percent, attempt_count) " +
+            "SELECT :quizId, " + BUCKET + ", COUNT(*) FROM quiz_attempts " +
+            "WHERE quiz_id = :quizId AND status IN ('SUBMITTED', 'AUTO_SUBMITTED') " +
+            "GROUP BY 2", nativeQuery = true)
+    int insertFinishedAttempts(@Param("quizId") Long quizId);
+
+    @Modifying
+    @Query("DELETE FROM QuizScoreBucket b WHERE b.quizId = :quizId")
+    int deleteByQuizId(@Param("quizId") Long quizId);
+}
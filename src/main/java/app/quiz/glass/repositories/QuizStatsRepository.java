@@ -0,0 +1,72 @@
+package app.quiz.glass.repositories;
+
+import app.quiz.glass.entities.QuizStats;
+import app.quiz.glass.repositories.projections.QuizPassingScore;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Additions run right before the finalizing transaction commits and take the row lock,
+ * which is what {@link #findByIdForUpdate} waits on before a rebuild.
+ */
+@Repository
+public interface QuizStatsRepository extends JpaRepository<QuizStats, Long> {
+
+    /**
+     * Adds finalized attempts, with their final totals, to the quiz's existing row. An
+     * attempt passes when its percentage (0 without points) reaches {@code passingScore}.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE quiz_stats s SET finished_count = s.finished_count + a.n, " +
+            "score_sum = s.score_sum + a.score_sum, " +
+            "score_square_sum = s.score_square_sum + a.score_square_sum, " +
+            "min_score = LEAST(s.min_score, a.min_score), " +
+            "max_score = GREATEST(s.max_score, a.max_score), " +
+            "pass_count = s.pass_count + a.pass_count, " +
+            "updated_at = :now, version = COALESCE(s.version, 0) + 1 " +
+            "FROM (SELECT COUNT(*) AS n, SUM(COALESCE(score, 0)) AS score_sum, " +
+            "    SUM(CAST(COALESCE(score, 0) AS bigint) * COALESCE(score, 0)) AS score_square_sum, " +
+            "    MIN(COALESCE(score, 0)) AS min_score, MAX(COALESCE(score, 0)) AS max_score, " +
+            "    COUNT(*) FILTER (WHERE CASE WHEN total_points > 0 THEN score * 100.0 / total_points ELSE 0 END " +
+            "        >= :passingScore) AS pass_count " +
+            "    FROM quiz_attempts WHERE id IN (:attemptIds)) a " +
+            "WHERE s.quiz_id = :quizId", nativeQuery = true)
+    int addAttempts(@Param("quizId") Long quizId,
+                    @Param("attemptIds") Collection<Long> attemptIds,
+                    @Param("passingScore") int passingScore,
+                    @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "INSERT INTO quiz_stats (quiz_id, finished_count, score_sum, score_square_sum, " +
+            "pass_count, updated_at) VALUES (:quizId, 0, 0, 0, 0, :now) " +
+            "ON CONFLICT (quiz_id) DO NOTHING", nativeQuery = true)
+    int createIfAbsent(@Param("quizId") Long quizId, @Param("now") LocalDateTime now);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM QuizStats s WHERE s.quizId = :quizId")
+    Optional<QuizStats> findByIdForUpdate(@Param("quizId") Long quizId);
+
+    @Query(value = "SELECT COALESCE(version, 0) FROM quiz_stats WHERE quiz_id = :quizId", nativeQuery = true)
+    long findVersion(@Param("quizId") Long quizId);
+
+    /**
+     * Quizzes whose row is missing or counts a different number of finished attempts than
+     * the quiz has.
+     */
+    @Query(value = "SELECT q.id AS quizId, q.passing_score AS passingScore FROM quizzes q " +
+            "JOIN (SELECT quiz_id, COUNT(*) AS n FROM quiz_attempts " +
+            "      WHERE status IN ('SUBMITTED', 'AUTO_SUBMITTED') GROUP BY quiz_id) f ON f.quiz_id = q.id " +
+            "LEFT JOIN quiz_stats s ON s.quiz_id = q.id " +
+            "WHERE s.finished_count IS DISTINCT FROM f.n ORDER BY q.id", nativeQuery = true)
+    List<QuizPassingScore> findQuizzesWithUncountedAttempts();
+}
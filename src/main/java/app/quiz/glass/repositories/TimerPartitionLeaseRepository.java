@@ -0,0 +1,51 @@
+package app.quiz.glass.repositories;
+
+import app.quiz.glass.entities.TimerPartitionLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+// Lease expiry is stamped with the database clock, like the node heartbeats
+@Repository
+public interface TimerPartitionLeaseRepository extends JpaRepository<TimerPartitionLease, Integer> {
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO timer_partition_leases (partition_id, owner_id, lease_expires_at) " +
+            "SELECT p, NULL, LOCALTIMESTAMP FROM generate_series(0, :partitions - 1) p " +
+            "ON CONFLICT (partition_id) DO NOTHING", nativeQuery = true)
+    int createPartitions(@Param("partitions") int partitions);
+
+    /**
+     * Takes or renews the leases on the given partitions that are free, expired or
+     * already held by this node; returns the partitions now held.
+     */
+    @Transactional
+    @Query(value = "UPDATE timer_partition_leases SET owner_id = :nodeId, " +
+            "lease_expires_at = LOCALTIMESTAMP + :ttlMs * INTERVAL '1 millisecond' " +
+            "WHERE partition_id IN (:partitions) AND (owner_id = :nodeId OR owner_id IS NULL " +
+            "OR lease_expires_at < LOCALTIMESTAMP) " +
+            "RETURNING partition_id", nativeQuery = true)
+    List<Integer> acquireLeases(@Param("nodeId") String nodeId,
+                                @Param("partitions") Collection<Integer> partitions,
+                                @Param("ttlMs") long ttlMs);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE timer_partition_leases SET owner_id = NULL " +
+            "WHERE owner_id = :nodeId AND partition_id IN (:partitions)", nativeQuery = true)
+    int releaseLeases(@Param("nodeId") String nodeId,
+                      @Param("partitions") Collection<Integer> partitions);
+
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE timer_partition_leases SET owner_id = NULL WHERE owner_id = :nodeId",
+            nativeQuery = true)
+    int releaseAllLeases(@Param("nodeId") String nodeId);
+}
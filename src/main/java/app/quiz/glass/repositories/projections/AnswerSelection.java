@@ -0,0 +1,11 @@
+package app.quiz.glass.repositories.projections;
+
+public interface AnswerSelection {
+    Long getId();
+
+    Long getQuestionId();
+
+    Long getSelectedOptionId();
+
+    Double getNumericalAnswer();
+}
@@ -0,0 +1,12 @@
+package app.quiz.glass.repositories.projections;
+
+import java.time.LocalDateTime;
+
+public interface AttemptDeadline {
+    Long getId();
+
+    LocalDateTime getExpiresAt();
+
+    // Principal name (email) timer frames are addressed to
+    String getUserName();
+}
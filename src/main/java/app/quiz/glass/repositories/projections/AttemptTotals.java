@@ -0,0 +1,9 @@
+package app.quiz.glass.repositories.projections;
+
+public interface AttemptTotals {
+    Integer getScore();
+
+    Integer getTotalPoints();
+
+    Integer getAnsweredCount();
+}
@@ -0,0 +1,20 @@
+package app.quiz.glass.repositories.projections;
+
+import java.time.LocalDateTime;
+
+// A finished attempt with the name of its user, for loading a leaderboard
+public interface LeaderboardRow {
+    Long getAttemptId();
+
+    Long getUserId();
+
+    String getUserName();
+
+    Integer getScore();
+
+    Integer getTotalPoints();
+
+    LocalDateTime getSubmittedAt();
+
+    Long getStatsVersion();
+}
@@ -0,0 +1,16 @@
+package app.quiz.glass.repositories.projections;
+
+// Selections of one option over finished attempts, overall and per score cohort
+public interface OptionSelectionStats {
+    Long getQuestionId();
+
+    Long getOptionId();
+
+    Long getSelections();
+
+    Long getTopSelections();
+
+    Long getBottomSelections();
+
+    Long getCohortSize();
+}
@@ -0,0 +1,12 @@
+package app.quiz.glass.repositories.projections;
+
+// Answer counts of one question over finished attempts
+public interface QuestionAnswerStats {
+    Long getQuestionId();
+
+    Long getTotalAnswers();
+
+    Long getCorrectAnswers();
+
+    Long getPointsSum();
+}
@@ -0,0 +1,20 @@
+package app.quiz.glass.repositories.projections;
+
+// Aggregates over one quiz's attempts; score figures cover finished attempts only
+public interface QuizAttemptSummary {
+    Long getTotalAttempts();
+
+    Long getSubmittedAttempts();
+
+    Long getInProgressAttempts();
+
+    Long getScoreSum();
+
+    Long getScoreSquareSum();
+
+    Integer getHighestScore();
+
+    Integer getLowestScore();
+
+    Long getPassedCount();
+}
@@ -0,0 +1,7 @@
+package app.quiz.glass.repositories.projections;
+
+public interface QuizPassingScore {
+    Long getQuizId();
+
+    Integer getPassingScore();
+}
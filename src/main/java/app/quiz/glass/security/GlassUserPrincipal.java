@@ -0,0 +1,31 @@
+package app.quiz.glass.security;
+
+import app.quiz.glass.entities.User;
+import app.quiz.glass.entities.UserRole;
+import lombok.Getter;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+
+/**
+ * Authenticated principal stored in the session. Carries the user's id, name and role so
+ * controllers can act for the user without looking them up on every request. Built at
+ * login; role or account changes take effect on the next login.
+ */
+@Getter
+public class GlassUserPrincipal extends org.springframework.security.core.userdetails.User {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String fullName;
+    private final UserRole role;
+
+    public GlassUserPrincipal(User user) {
+        super(user.getEmail(), user.getPassword(), true, true, true, user.getEnabled(),
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole().name())));
+        this.id = user.getId();
+        this.fullName = user.getFullName();
+        this.role = user.getRole();
+    }
+}
@@ -1,22 +1,26 @@
 package app.quiz.glass.services;
 
+import app.quiz.glass.dto.analytics.OptionAnalyticsDTO;
 import app.quiz.glass.dto.analytics.QuestionAnalyticsDTO;
 import app.quiz.glass.dto.analytics.QuizAnalyticsDTO;
+import app.quiz.glass.dto.analytics.ScoreDistributionDTO;
 import app.quiz.glass.dto.leaderboard.LeaderboardDTO;
 import app.quiz.glass.dto.leaderboard.LeaderboardEntryDTO;
+import app.quiz.glass.dto.question.QuestionDTO;
+import app.quiz.glass.dto.question.QuestionOptionDTO;
 import app.quiz.glass.entities.*;
-import app.quiz.glass.repositories.AnswerRepository;
 import app.quiz.glass.repositories.QuestionRepository;
 import app.quiz.glass.repositories.QuizAttemptRepository;
 import app.quiz.glass.repositories.QuizRepository;
+import app.quiz.glass.repositories.projections.OptionSelectionStats;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -26,144 +30,216 @@ public class AnalyticsService {
 
     private final QuizRepository quizRepository;
     private final QuizAttemptRepository attemptRepository;
-    private final AnswerRepository answerRepository;
     private final QuestionRepository questionRepository;
+    private final QuizContentCache contentCache;
+    private final QuizStatsStore quizStatsStore;
+    private final LeaderboardStore leaderboardStore;
+
+    /**
+     * A page of the quiz's leaderboard, read from its in-memory ranking.
+     */
+    @Transactional
+    public LeaderboardDTO getLeaderboard(Long quizId, int offset, int limit) {
+        Quiz quiz = quizRepository.findById(quizId)
+                .orElseThrow(() -> new RuntimeException("Quiz not found"));
 
-    @Transactional(readOnly = true)
-    public LeaderboardDTO getLeaderboard(Long quizId, int limit) {
+        Leaderboard.Page page = leaderboardStore.get(quizId, quiz.getPassingScore())
+                .page(Math.max(0, offset), Math.max(0, limit));
+        return toLeaderboard(quiz, page, null);
+    }
+
+    /**
+     * The user's place on the leaderboard, by their best attempt, with {@code window}
+     * entries on either side.
+     */
+    @Transactional
+    public LeaderboardDTO getLeaderboardAround(Long quizId, Long userId, int window) {
         Quiz quiz = quizRepository.findById(quizId)
                 .orElseThrow(() -> new RuntimeException("Quiz not found"));
 
-        Pageable pageable = PageRequest.of(0, limit);
-        List<QuizAttempt> topAttempts = attemptRepository
-                .findLeaderboard(quizId, pageable);
+        Leaderboard board = leaderboardStore.get(quizId, quiz.getPassingScore());
+        Leaderboard.Page page = board.around(userId, Math.max(0, window));
+        if (page == null) {
+            return toLeaderboard(quiz, board.page(0, 0), null);
+        }
+        return toLeaderboard(quiz, page, page.getUserPosition() + 1);
+    }
 
+    private LeaderboardDTO toLeaderboard(Quiz quiz, Leaderboard.Page page, Integer myRank) {
         List<LeaderboardEntryDTO> entries = new ArrayList<>();
-        int rank = 1;
+        int rank = page.getOffset() + 1;
 
-        for (QuizAttempt attempt : topAttempts) {
-            double percentage = attempt.getTotalPoints() > 0 ?
-                    (attempt.getScore() * 100.0 / attempt.getTotalPoints()) : 0;
+        for (Leaderboard.Entry entry : page.getEntries()) {
+            double percentage = entry.getTotalPoints() > 0 ?
+                    (entry.getScore() * 100.0 / entry.getTotalPoints()) : 0;
 
             entries.add(LeaderboardEntryDTO.builder()
-                    .attemptId(attempt.getId())
-                    .userName(attempt.getUser().getFullName())
-                    .score(attempt.getScore())
-                    .totalPoints(attempt.getTotalPoints())
+                    .attemptId(entry.getAttemptId())
+                    .userName(entry.getUserName())
+                    .score(entry.getScore())
+                    .totalPoints(entry.getTotalPoints())
                     .percentage(percentage)
-                    .submittedAt(attempt.getSubmittedAt())
+                    .submittedAt(entry.getSubmittedAt())
                     .rank(rank++)
                     .build());
         }
 
-        long totalParticipants = attemptRepository
-                .countByQuizIdAndStatus(quizId, AttemptStatus.SUBMITTED) +
-                attemptRepository.countByQuizIdAndStatus(quizId, AttemptStatus.AUTO_SUBMITTED);
-
         return LeaderboardDTO.builder()
-                .quizId(quizId)
+                .quizId(quiz.getId())
                 .quizTitle(quiz.getTitle())
                 .entries(entries)
-                .totalParticipants((int) totalParticipants)
+                .totalParticipants(page.getTotal())
+                .myRank(myRank)
                 .build();
     }
 
-    @Transactional(readOnly = true)
+    @Transactional
     public QuizAnalyticsDTO getQuizAnalytics(Long quizId) {
+        return getQuizAnalytics(quizId, false);
+    }
+
+    /**
+     * Quiz and per-question figures from the running statistics, so the cost depends on
+     * the number of questions, not attempts. {@code includeOptions} adds the per-option
+     * distractor analysis, which aggregates the quiz's answers in one query.
+     */
+    @Transactional
+    public QuizAnalyticsDTO getQuizAnalytics(Long quizId, boolean includeOptions) {
         Quiz quiz = quizRepository.findById(quizId)
                 .orElseThrow(() -> new RuntimeException("Quiz not found"));
 
-        List<QuizAttempt> allAttempts = attemptRepository
-                .findByQuizId(quizId, PageRequest.of(0, Integer.MAX_VALUE))
-                .getContent();
+        QuizStatsStore.Snapshot snapshot = quizStatsStore.get(quizId, quiz.getPassingScore());
+        QuizStats stats = snapshot.getStats();
+        long finished = stats.getFinishedCount();
+        long inProgress = attemptRepository.countByQuizIdAndStatus(quizId, AttemptStatus.IN_PROGRESS);
 
-        List<QuizAttempt> submittedAttempts = allAttempts.stream()
-                .filter(a -> a.getStatus() == AttemptStatus.SUBMITTED ||
-                        a.getStatus() == AttemptStatus.AUTO_SUBMITTED)
-                .collect(Collectors.toList());
+        double passRate = finished == 0 ? 0 :
+                (stats.getPassCount() * 100.0 / finished);
 
-        List<QuizAttempt> inProgressAttempts = allAttempts.stream()
-                .filter(a -> a.getStatus() == AttemptStatus.IN_PROGRESS)
+        // Question-level analytics
+        List<QuestionAnalyticsDTO> questionAnalytics = contentCache.get(quizId).questions(includeOptions).stream()
+                .map(question -> toQuestionAnalytics(question, snapshot.getQuestions().get(question.getId())))
                 .collect(Collectors.toList());
 
-        // Calculate statistics
-        OptionalDouble avgScore = submittedAttempts.stream()
-                .mapToInt(QuizAttempt::getScore)
-                .average();
-
-        OptionalInt maxScore = submittedAttempts.stream()
-                .mapToInt(QuizAttempt::getScore)
-                .max();
-
-        OptionalInt minScore = submittedAttempts.stream()
-                .mapToInt(QuizAttempt::getScore)
-                .min();
-
-        long passedCount = submittedAttempts.stream()
-                .filter(a -> {
-                    double percentage = a.getTotalPoints() > 0 ?
-                            (a.getScore() * 100.0 / a.getTotalPoints()) : 0;
-                    return percentage >= quiz.getPassingScore();
-                })
-                .count();
-
-        double passRate = submittedAttempts.isEmpty() ? 0 :
-                (passedCount * 100.0 / submittedAttempts.size());
-
-        // Question-level analytics
-        List<QuestionAnalyticsDTO> questionAnalytics =
-                calculateQuestionAnalytics(quizId, submittedAttempts);
+        Integer cohortSize = null;
+        if (includeOptions) {
+            cohortSize = addOptionAnalytics(quizId, questionAnalytics);
+        }
 
         return QuizAnalyticsDTO.builder()
                 .quizId(quizId)
                 .quizTitle(quiz.getTitle())
-                .totalAttempts(allAttempts.size())
-                .submittedAttempts(submittedAttempts.size())
-                .inProgressAttempts(inProgressAttempts.size())
-                .averageScore(avgScore.orElse(0.0))
+                .totalAttempts((int) (finished + inProgress))
+                .submittedAttempts((int) finished)
+                .inProgressAttempts((int) inProgress)
+                .averageScore(snapshot.averageScore())
+                .scoreStdDev(snapshot.scoreStdDev())
                 .passRate(passRate)
-                .highestScore(maxScore.orElse(0))
-                .lowestScore(minScore.orElse(0))
+                .highestScore(stats.getMaxScore() != null ? stats.getMaxScore() : 0)
+                .lowestScore(stats.getMinScore() != null ? stats.getMinScore() : 0)
+                .cohortSize(cohortSize)
                 .questionAnalytics(questionAnalytics)
                 .build();
     }
 
-    private List<QuestionAnalyticsDTO> calculateQuestionAnalytics(
-            Long quizId, List<QuizAttempt> submittedAttempts) {
-
-        List<Question> questions = questionRepository
-                .findByQuizIdOrderByOrderIndexAsc(quizId);
+    // Fills in the options of the choice questions; returns the cohort size
+    private int addOptionAnalytics(Long quizId, List<QuestionAnalyticsDTO> questionAnalytics) {
+        Map<Long, OptionSelectionStats> byOption = questionRepository.findOptionStatsByQuizId(quizId).stream()
+                .collect(Collectors.toMap(OptionSelectionStats::getOptionId, Function.identity()));
+        long cohortSize = byOption.values().stream()
+                .findFirst().map(OptionSelectionStats::getCohortSize).orElse(0L);
+
+        Map<Long, QuestionDTO> questions = contentCache.get(quizId).questions(true).stream()
+                .collect(Collectors.toMap(QuestionDTO::getId, Function.identity()));
+        for (QuestionAnalyticsDTO analytics : questionAnalytics) {
+            QuestionDTO question = questions.get(analytics.getQuestionId());
+            if (question.getType() == QuestionType.NUMERICAL) {
+                continue;
+            }
+            analytics.setOptions(question.getOptions().stream()
+                    .map(option -> toOptionAnalytics(option, byOption.get(option.getId()), cohortSize))
+                    .toList());
+        }
+        return (int) cohortSize;
+    }
 
-        List<QuestionAnalyticsDTO> analytics = new ArrayList<>();
+    private OptionAnalyticsDTO toOptionAnalytics(QuestionOptionDTO option, OptionSelectionStats stats,
+                                                 long cohortSize) {
+        long top = stats != null ? stats.getTopSelections() : 0;
+        long bottom = stats != null ? stats.getBottomSelections() : 0;
+
+        return OptionAnalyticsDTO.builder()
+                .optionId(option.getId())
+                .optionText(option.getOptionText())
+                .isCorrect(option.getIsCorrect())
+                .selections(stats != null ? stats.getSelections().intValue() : 0)
+                .topSelections((int) top)
+                .bottomSelections((int) bottom)
+                .discrimination(cohortSize == 0 ? null : (top - bottom) / (double) cohortSize)
+                .build();
+    }
 
-        for (Question question : questions) {
-            List<Answer> questionAnswers = submittedAttempts.stream()
-                    .flatMap(attempt -> answerRepository.findByAttemptId(attempt.getId()).stream())
-                    .filter(answer -> answer.getQuestion().getId().equals(question.getId()))
-                    .collect(Collectors.toList());
+    /**
+     * Recomputes the quiz's running statistics from its attempts, then reports them.
+     */
+    @Transactional
+    public QuizAnalyticsDTO rebuildQuizStats(Long quizId) {
+        Quiz quiz = quizRepository.findById(quizId)
+                .orElseThrow(() -> new RuntimeException("Quiz not found"));
 
-            long correctCount = questionAnswers.stream()
-                    .filter(Answer::getIsCorrect)
-                    .count();
+        quizStatsStore.rebuild(quizId, quiz.getPassingScore());
+        return getQuizAnalytics(quizId);
+    }
 
-            double successRate = questionAnswers.isEmpty() ? 0 :
-                    (correctCount * 100.0 / questionAnswers.size());
+    /**
+     * Score histogram and percentiles of a quiz's finished attempts.
+     */
+    @Transactional
+    public ScoreDistributionDTO getScoreDistribution(Long quizId) {
+        return getScoreDistribution(List.of(quizId));
+    }
 
-            OptionalDouble avgPoints = questionAnswers.stream()
-                    .mapToInt(Answer::getPointsEarned)
-                    .average();
+    /**
+     * Score distribution of several quizzes together, merged from their histograms.
+     */
+    @Transactional
+    public ScoreDistributionDTO getScoreDistribution(List<Long> quizIds) {
+        List<Quiz> quizzes = quizRepository.findAllById(quizIds);
+        if (quizzes.size() != new HashSet<>(quizIds).size()) {
+            throw new RuntimeException("Quiz not found");
+        }
 
-            analytics.add(QuestionAnalyticsDTO.builder()
-                    .questionId(question.getId())
-                    .questionText(question.getQuestionText())
-                    .totalAttempts(questionAnswers.size())
-                    .correctAttempts((int) correctCount)
-                    .successRate(successRate)
-                    .averagePoints((int) avgPoints.orElse(0))
-                    .build());
+        ScoreHistogram histogram = new ScoreHistogram();
+        for (Quiz quiz : quizzes) {
+            histogram.merge(quizStatsStore.get(quiz.getId(), quiz.getPassingScore()).getHistogram());
         }
 
-        return analytics;
+        return ScoreDistributionDTO.builder()
+                .quizIds(quizIds)
+                .finishedAttempts(histogram.count())
+                .histogram(Arrays.stream(histogram.counts()).boxed().toList())
+                .p10(histogram.percentile(0.10))
+                .p25(histogram.percentile(0.25))
+                .median(histogram.percentile(0.50))
+                .p75(histogram.percentile(0.75))
+                .p90(histogram.percentile(0.90))
+                .build();
+    }
+
+    private QuestionAnalyticsDTO toQuestionAnalytics(QuestionDTO question, QuestionStats stats) {
+        long total = stats != null ? stats.getAnswerCount() : 0;
+        long correct = stats != null ? stats.getCorrectCount() : 0;
+
+        double successRate = total == 0 ? 0 : (correct * 100.0 / total);
+
+        return QuestionAnalyticsDTO.builder()
+                .questionId(question.getId())
+                .questionText(question.getQuestionText())
+                .totalAttempts((int) total)
+                .correctAttempts((int) correct)
+                .successRate(successRate)
+                .averagePoints(total == 0 ? 0 : (int) (stats.getPointsSum() / total))
+                .build();
     }
 
     @Transactional(readOnly = true)
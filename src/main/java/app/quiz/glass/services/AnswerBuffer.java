@@ -0,0 +1,498 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.dto.answer.SubmitAnswerRequest;
+import app.quiz.glass.dto.answer.SubmitAnswerResponse;
+import app.quiz.glass.dto.question.QuestionDTO;
+import app.quiz.glass.dto.question.QuestionOptionDTO;
+import app.quiz.glass.entities.AttemptStatus;
+import app.quiz.glass.entities.QuestionType;
+import app.quiz.glass.repositories.AnswerRepository;
+import app.quiz.glass.repositories.QuizAttemptRepository;
+import app.quiz.glass.repositories.projections.AnswerSelection;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for auto-saved answers.
+ * <p>
+ * The first answer of an attempt loads what validation needs (owner, deadline, the quiz's
+ * questions and options, already answered questions); after that an answer is checked,
+ * graded against the quiz's {@link AnswerKey} and acknowledged from memory, and repeated
+ * saves of the same question collapse into one pending row. Pending answers are written
+ * every {@code quiz.auto-save.debounce-ms} as a single batch of upserts; each moves the
+ * attempt's running totals on its row by the answer's difference in points, so the row
+ * stays right when the answers of one attempt are saved by several nodes.
+ * <p>
+ * Finalizing an attempt flushes it inside the finalizing transaction, which then reads
+ * the totals from the row, so no answer has to be read back; shutdown flushes everything.
+ * That only works while the finalizer runs next to the buffer, so answers are held back
+ * on a single node only. In a cluster a submit, the expiry sweeper or a quiz close may run
+ * on any node, and every answer is written through before it is acknowledged; the same
+ * goes for answers close to the deadline and for {@code quiz.auto-save.enabled=false}.
+ * <p>
+ * A write-through waits for the attempt's row lock like a finalizer, and a finalizer only
+ * changes the status after it flushed; an answer racing a finalizer on another node is
+ * refused rather than acknowledged. The background flush instead leaves attempts whose
+ * row another transaction holds to that transaction, typically a finalizer waiting for
+ * the flush.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnswerBuffer {
+
+    private final AttemptStateCache attemptStateCache;
+    private final QuizAttemptRepository attemptRepository;
+    private final QuizContentCache contentCache;
+    private final AnswerRepository answerRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final QuizAppProperties properties;
+    private final AnswerIds answerIds;
+
+    private final Map<Long, AttemptAnswers> attempts = new ConcurrentHashMap<>();
+
+    public SubmitAnswerResponse record(SubmitAnswerRequest request, Long userId) {
+        AttemptAnswers state = attempts.get(request.getAttemptId());
+        if (state == null) {
+            state = load(request.getAttemptId(), userId);
+            AttemptAnswers existing = attempts.putIfAbsent(state.attemptId, state);
+            state = existing != null ? existing : state;
+        }
+
+        if (!state.userId.equals(userId)) {
+            throw new RuntimeException("Attempt not found");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        if (now.isAfter(state.expiresAt)) {
+            throw new RuntimeException("Quiz time has expired");
+        }
+
+        QuestionKey question = state.questions.get(request.getQuestionId());
+        if (question == null) {
+            throw new RuntimeException("Question not found");
+        }
+        boolean numerical = question.type == QuestionType.NUMERICAL;
+        Long selectedOptionId = numerical ? null : question.option(request.getSelectedOptionId());
+        Double numericalAnswer = numerical ? request.getNumericalAnswer() : null;
+        boolean correct = state.key.isCorrect(question.slot, selectedOptionId, numericalAnswer);
+        int points = state.key.points(question.slot);
+        PendingAnswer answer = new PendingAnswer(question.id, selectedOptionId, numericalAnswer,
+                correct, correct ? points : 0, points, now);
+
+        int answeredCount;
+        state.lock.lock();
+        try {
+            if (state.closed) {
+                throw new RuntimeException("Attempt is not in progress");
+            }
+            state.position = question.orderIndex;
+            PendingAnswer previous = state.pending.put(question.id, answer);
+            if (previous != null) {
+                answer.answeredAt = previous.answeredAt;
+            }
+            state.markAnswered(question.slot);
+            answeredCount = state.answeredCount;
+        } finally {
+            state.lock.unlock();
+        }
+
+        long debounceMs = properties.getAutoSave().getDebounceMs();
+        boolean nearDeadline = now.plusNanos(debounceMs * 2_000_000).isAfter(state.expiresAt);
+        if (!properties.getAutoSave().getEnabled() || nearDeadline || properties.getCluster().getEnabled()) {
+            AttemptAnswers flushed = state;
+            boolean saved = transactionTemplate.execute(tx -> {
+                // Row first, then the buffer, in the order the finalizers take them
+                attemptRepository.lockAttempt(flushed.attemptId);
+                return flush(flushed);
+            });
+            if (!saved) {
+                throw new RuntimeException("Attempt is not in progress");
+            }
+        }
+
+        return SubmitAnswerResponse.builder()
+                .saved(true)
+                .message("Answer saved successfully")
+                .answeredCount(answeredCount)
+                .totalQuestions(state.questions.size())
+                .build();
+    }
+
+    /**
+     * Remembers the question the student navigated to. Only kept in memory; it is written
+     * with the attempt's next answer flush, so browsing questions costs no writes.
+     */
+    public void notePosition(long attemptId, int questionIndex) {
+        AttemptAnswers state = attempts.get(attemptId);
+        if (state != null) {
+            state.position = questionIndex;
+        }
+    }
+
+    /**
+     * Writes the attempt's pending answers in the caller's transaction, which holds the
+     * attempt's row lock, and stops buffering for it; used right before an attempt is
+     * finalized. Answers are put back if the transaction rolls back.
+     */
+    public void flushAndClose(long attemptId) {
+        AttemptAnswers state = attempts.get(attemptId);
+        if (state != null && flush(state)) {
+            close(state);
+        }
+    }
+
+    /**
+     * {@link #flushAndClose} for every buffered attempt of a quiz.
+     */
+    public void flushAndCloseQuiz(long quizId) {
+        for (AttemptAnswers state : attempts.values()) {
+            if (state.quizId == quizId && flush(state)) {
+                close(state);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${quiz.auto-save.debounce-ms:2000}")
+    public void flushPending() {
+        List<AttemptAnswers> locked = new ArrayList<>();
+        Map<AttemptAnswers, List<PendingAnswer>> drained = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        try {
+            for (AttemptAnswers state : attempts.values()) {
+                // An attempt being flushed by its finalizer is skipped; it is handled there
+                if (!state.flushLock.tryLock()) {
+                    continue;
+                }
+                locked.add(state);
+                List<PendingAnswer> answers = state.drain();
+                if (!answers.isEmpty()) {
+                    drained.put(state, answers);
+                } else if (now.isAfter(state.expiresAt)) {
+                    // Finalized on another node or by the sweeper; nothing left to keep
+                    attempts.remove(state.attemptId, state);
+                }
+            }
+            if (drained.isEmpty()) {
+                return;
+            }
+
+            try {
+                transactionTemplate.execute(tx -> {
+                    // Attempts whose row is held are left to the holder, usually a finalizer
+                    // waiting for this flush; waiting for it instead would deadlock
+                    Set<Long> rows = new HashSet<>(attemptRepository.lockUnheldAttempts(
+                            drained.keySet().stream().map(state -> state.attemptId).toList()));
+                    drained.entrySet().removeIf(held -> {
+                        if (rows.contains(held.getKey().attemptId)) {
+                            return false;
+                        }
+                        held.getKey().restore(held.getValue());
+                        return true;
+                    });
+                    return write(drained);
+                }).forEach(state -> reject(state, drained.get(state)));
+            } catch (Exception e) {
+                log.error("Error flushing buffered answers of {} attempts", drained.size(), e);
+                drained.forEach(AttemptAnswers::restore);
+            }
+        } finally {
+            locked.forEach(state -> state.flushLock.unlock());
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flushPending();
+    }
+
+    private AttemptAnswers load(Long attemptId, Long userId) {
+        AttemptStateCache.AttemptState attempt = attemptStateCache.get(attemptId, userId);
+
+        if (attempt.getStatus() != AttemptStatus.IN_PROGRESS) {
+            throw new RuntimeException("Attempt is not in progress");
+        }
+
+        Long quizId = attempt.getQuizId();
+        QuizContentCache.QuizContent content = contentCache.get(quizId);
+        AnswerKey key = content.getAnswerKey();
+        Map<Long, QuestionKey> questions = new HashMap<>();
+        for (QuestionDTO question : content.getQuestions()) {
+            questions.put(question.getId(), new QuestionKey(question, key.indexOf(question.getId())));
+        }
+
+        AttemptAnswers state = new AttemptAnswers(attemptId, userId, quizId, attempt.getExpiresAt(), questions, key);
+        for (AnswerSelection answer : answerRepository.findSelectionsByAttemptId(attemptId)) {
+            int slot = key.indexOf(answer.getQuestionId());
+            if (slot >= 0) {
+                state.markAnswered(slot);
+            }
+        }
+        return state;
+    }
+
+    // Caller holds the attempt's row lock; returns false if it turned out to be finalized
+    private boolean flush(AttemptAnswers state) {
+        state.flushLock.lock();
+        try {
+            List<PendingAnswer> answers = state.drain();
+            if (answers.isEmpty()) {
+                return true;
+            }
+
+            try {
+                if (!write(Map.of(state, answers)).isEmpty()) {
+                    reject(state, answers);
+                    return false;
+                }
+            } catch (RuntimeException e) {
+                state.restore(answers);
+                throw e;
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            state.reopen(answers);
+                        }
+                    }
+                });
+            }
+            return true;
+        } finally {
+            state.flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the answers of attempts whose rows the caller has locked; each moves its
+     * attempt's totals. Attempts no longer in progress get nothing written. Returns those.
+     */
+    private List<AttemptAnswers> write(Map<AttemptAnswers, List<PendingAnswer>> drained) {
+        List<AttemptAnswers> states = new ArrayList<>(drained.keySet());
+        if (states.isEmpty()) {
+            return List.of();
+        }
+        if (states.size() == 1 && drained.get(states.get(0)).size() == 1) {
+            // Write-through of a single answer, the usual case with auto-save disabled
+            AttemptAnswers state = states.get(0);
+            PendingAnswer answer = drained.get(state).get(0);
+            int updated = answerRepository.upsertAnswer(answerIds.next(), state.attemptId, state.position,
+                    answer.questionId, answer.selectedOptionId, answer.numericalAnswer, answer.correct,
+                    answer.pointsEarned, answer.questionPoints, answer.answeredAt, answer.lastModifiedAt);
+            return updated == 0 ? List.of(state) : List.of();
+        }
+
+        // Attempt order, the order their rows are locked in
+        states.sort(Comparator.comparingLong(state -> state.attemptId));
+        List<AttemptAnswers> owners = new ArrayList<>();
+        List<SqlParameterSource> batch = new ArrayList<>();
+        for (AttemptAnswers state : states) {
+            for (PendingAnswer answer : drained.get(state)) {
+                owners.add(state);
+                batch.add(new MapSqlParameterSource()
+                        .addValue("id", answerIds.next())
+                        .addValue("attemptId", state.attemptId)
+                        .addValue("position", state.position)
+                        .addValue("questionId", answer.questionId)
+                        .addValue("selectedOptionId", answer.selectedOptionId)
+                        .addValue("numericalAnswer", answer.numericalAnswer)
+                        .addValue("correct", answer.correct)
+                        .addValue("pointsEarned", answer.pointsEarned)
+                        .addValue("questionPoints", answer.questionPoints)
+                        .addValue("answeredAt", answer.answeredAt)
+                        .addValue("lastModifiedAt", answer.lastModifiedAt));
+            }
+        }
+        int[] updated = jdbcTemplate.batchUpdate(AnswerRepository.UPSERT_ANSWER, batch.toArray(SqlParameterSource[]::new));
+
+        Set<AttemptAnswers> rejected = new LinkedHashSet<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                rejected.add(owners.get(i));
+            }
+        }
+        return new ArrayList<>(rejected);
+    }
+
+    // The attempt was finalized without these answers; stop buffering and refuse further ones
+    private void reject(AttemptAnswers state, List<PendingAnswer> answers) {
+        log.warn("Attempt {} is no longer in progress; {} answers were refused", state.attemptId, answers.size());
+        state.lock.lock();
+        try {
+            state.closed = true;
+        } finally {
+            state.lock.unlock();
+        }
+        attempts.remove(state.attemptId, state);
+        attemptStateCache.evict(state.attemptId);
+    }
+
+    private void close(AttemptAnswers state) {
+        state.lock.lock();
+        try {
+            state.closed = true;
+        } finally {
+            state.lock.unlock();
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        attempts.remove(state.attemptId, state);
+                    }
+                }
+            });
+        } else {
+            attempts.remove(state.attemptId, state);
+        }
+    }
+
+    private static final class AttemptAnswers {
+        private final long attemptId;
+        private final Long userId;
+        private final long quizId;
+        private final LocalDateTime expiresAt;
+        private final Map<Long, QuestionKey> questions;
+        private final AnswerKey key;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ReentrantLock flushLock = new ReentrantLock();
+        private final Map<Long, PendingAnswer> pending = new LinkedHashMap<>();
+        // Answer key slots answered so far; guarded by lock like the count
+        private final boolean[] answered;
+        private int answeredCount;
+        private boolean closed;
+        // Last question index viewed or answered
+        private volatile int position;
+
+        private AttemptAnswers(long attemptId, Long userId, long quizId, LocalDateTime expiresAt,
+                               Map<Long, QuestionKey> questions, AnswerKey key) {
+            this.attemptId = attemptId;
+            this.userId = userId;
+            this.quizId = quizId;
+            this.expiresAt = expiresAt;
+            this.questions = questions;
+            this.key = key;
+            this.answered = new boolean[key.size()];
+        }
+
+        // Caller holds lock or owns the state
+        private void markAnswered(int slot) {
+            if (!answered[slot]) {
+                answered[slot] = true;
+                answeredCount++;
+            }
+        }
+
+        private List<PendingAnswer> drain() {
+            lock.lock();
+            try {
+                List<PendingAnswer> drained = new ArrayList<>(pending.values());
+                pending.clear();
+                return drained;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Puts back answers whose write failed; newer answers to the same question win
+        private void restore(List<PendingAnswer> answers) {
+            lock.lock();
+            try {
+                for (PendingAnswer answer : answers) {
+                    pending.putIfAbsent(answer.questionId, answer);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void reopen(List<PendingAnswer> answers) {
+            lock.lock();
+            try {
+                closed = false;
+            } finally {
+                lock.unlock();
+            }
+            restore(answers);
+        }
+    }
+
+    private static final class PendingAnswer {
+        private final long questionId;
+        private final Long selectedOptionId;
+        private final Double numericalAnswer;
+        private final boolean correct;
+        private final int pointsEarned;
+        // The question's points, added to the attempt's total by a first answer
+        private final int questionPoints;
+        private final LocalDateTime lastModifiedAt;
+        private LocalDateTime answeredAt;
+
+        private PendingAnswer(long questionId, Long selectedOptionId, Double numericalAnswer,
+                              boolean correct, int pointsEarned, int questionPoints, LocalDateTime modifiedAt) {
+            this.questionId = questionId;
+            this.selectedOptionId = selectedOptionId;
+            this.numericalAnswer = numericalAnswer;
+            this.correct = correct;
+            this.pointsEarned = pointsEarned;
+            this.questionPoints = questionPoints;
+            this.lastModifiedAt = modifiedAt;
+            this.answeredAt = modifiedAt;
+        }
+    }
+
+    // What answer validation needs from a question, without holding on to the entity
+    private static final class QuestionKey {
+        private final long id;
+        private final QuestionType type;
+        private final int orderIndex;
+        private final int slot;
+        private final Set<Long> optionIds = new HashSet<>();
+
+        private QuestionKey(QuestionDTO question, int slot) {
+            this.id = question.getId();
+            this.slot = slot;
+            this.type = question.getType();
+            this.orderIndex = question.getOrderIndex();
+            for (QuestionOptionDTO option : question.getOptions()) {
+                optionIds.add(option.getId());
+            }
+        }
+
+        private Long option(Long optionId) {
+            if (optionId == null || !optionIds.contains(optionId)) {
+                throw new RuntimeException("Invalid option");
+            }
+            return optionId;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.entities.Answer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ids for answers inserted by native upserts, allocated the way Hibernate's pooled
+ * optimizer does for {@link Answer}: each {@code nextval('answers_seq')} reserves the
+ * block (value - allocation size, value]. One sequence call serves a whole block, and
+ * the ids never collide with ones Hibernate hands out. An id whose upsert hits an
+ * existing row is simply skipped.
+ */
+@Component
+@RequiredArgsConstructor
+public class AnswerIds {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Next id to hand out and the last id of the current block
+    private long next = 1;
+    private long last;
+
+    public synchronized long next() {
+        if (next > last) {
+            last = jdbcTemplate.queryForObject("SELECT nextval('answers_seq')", Long.class);
+            // A fresh sequence starts at 1, below the first full block
+            next = Math.max(1, last - Answer.ID_ALLOCATION_SIZE + 1);
+        }
+        return next++;
+    }
+}
@@ -0,0 +1,132 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.entities.Question;
+import app.quiz.glass.entities.QuestionOption;
+import app.quiz.glass.entities.QuestionType;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Grading data of one quiz compiled into primitive arrays: per question its points, the
+ * sorted ids of its correct options and, for NUMERICAL questions, the correct option texts
+ * parsed once with the question's tolerance. Grading is a lookup and a comparison, with no
+ * parsing, allocation or entity access.
+ * <p>
+ * Questions are addressed by their slot, found with {@link #indexOf(long)}.
+ */
+public final class AnswerKey {
+
+    /** Tolerance of NUMERICAL questions that do not set one. */
+    public static final double DEFAULT_TOLERANCE = 0.01;
+
+    private static final long[] NO_OPTIONS = new long[0];
+    private static final double[] NO_TARGETS = new double[0];
+
+    private final long[] questionIds;
+    private final int[] points;
+    private final boolean[] numerical;
+    private final long[][] correctOptionIds;
+    private final double[][] targets;
+    private final double[] tolerances;
+    private final int totalPoints;
+
+    private AnswerKey(long[] questionIds, int[] points, boolean[] numerical, long[][] correctOptionIds,
+                      double[][] targets, double[] tolerances) {
+        this.questionIds = questionIds;
+        this.points = points;
+        this.numerical = numerical;
+        this.correctOptionIds = correctOptionIds;
+        this.targets = targets;
+        this.tolerances = tolerances;
+        this.totalPoints = Arrays.stream(points).sum();
+    }
+
+    /**
+     * Compiles the key of a quiz from its questions with their options loaded.
+     */
+    public static AnswerKey compile(List<Question> questions) {
+        List<Question> byId = questions.stream().sorted(Comparator.comparing(Question::getId)).toList();
+        int size = byId.size();
+        long[] questionIds = new long[size];
+        int[] points = new int[size];
+        boolean[] numerical = new boolean[size];
+        long[][] correctOptionIds = new long[size][];
+        double[][] targets = new double[size][];
+        double[] tolerances = new double[size];
+
+        for (int i = 0; i < size; i++) {
+            Question question = byId.get(i);
+            List<QuestionOption> correct = question.getOptions().stream()
+                    .filter(QuestionOption::getIsCorrect)
+                    .toList();
+
+            questionIds[i] = question.getId();
+            points[i] = question.getPoints();
+            numerical[i] = question.getType() == QuestionType.NUMERICAL;
+            correctOptionIds[i] = numerical[i] ? NO_OPTIONS
+                    : correct.stream().mapToLong(QuestionOption::getId).sorted().toArray();
+            targets[i] = numerical[i] ? parseTargets(correct) : NO_TARGETS;
+            tolerances[i] = question.getNumericTolerance() != null
+                    ? question.getNumericTolerance() : DEFAULT_TOLERANCE;
+        }
+        return new AnswerKey(questionIds, points, numerical, correctOptionIds, targets, tolerances);
+    }
+
+    // Correct options whose text is not a number can never match, as before
+    private static double[] parseTargets(List<QuestionOption> correct) {
+        double[] parsed = new double[correct.size()];
+        int count = 0;
+        for (QuestionOption option : correct) {
+            try {
+                parsed[count] = Double.parseDouble(option.getOptionText());
+                count++;
+            } catch (NumberFormatException e) {
+                // skipped
+            }
+        }
+        return count == parsed.length ? parsed : Arrays.copyOf(parsed, count);
+    }
+
+    /**
+     * Slot of the question, or -1 if it is not part of the quiz.
+     */
+    public int indexOf(long questionId) {
+        int index = Arrays.binarySearch(questionIds, questionId);
+        return index >= 0 ? index : -1;
+    }
+
+    public int size() {
+        return questionIds.length;
+    }
+
+    public int points(int index) {
+        return points[index];
+    }
+
+    public int totalPoints() {
+        return totalPoints;
+    }
+
+    /**
+     * Grades an answer to the question in slot {@code index}: choice questions by the
+     * selected option, NUMERICAL ones by distance to any correct value.
+     */
+    public boolean isCorrect(int index, Long selectedOptionId, Double numericalAnswer) {
+        if (numerical[index]) {
+            if (numericalAnswer == null) {
+                return false;
+            }
+            double value = numericalAnswer;
+            double tolerance = tolerances[index];
+            for (double target : targets[index]) {
+                if (Math.abs(target - value) < tolerance) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return selectedOptionId != null && Arrays.binarySearch(correctOptionIds[index], selectedOptionId) >= 0;
+    }
+}
@@ -1,19 +1,68 @@
 package app.quiz.glass.services;
 
+import app.quiz.glass.config.QuizAppProperties;
 import app.quiz.glass.entities.AttemptExpiredEvent;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class AttemptExpiryListener {
 
     private final QuizAttemptService quizAttemptService;
+    private final ThreadPoolExecutor attemptExpiryExecutor;
+    private final QuizAppProperties properties;
 
+    /**
+     * Runs on the timer thread, so it only splits the tick's expiries into batches and
+     * queues them. Batches the queue cannot take are left to the expiry sweeper.
+     */
     @EventListener
     public void onAttemptExpired(AttemptExpiredEvent event) {
-        quizAttemptService.autoSubmitAttempt(event.getAttemptId());
+        long[] attemptIds = event.getAttemptIds();
+        int batchSize = properties.getExpiry().getBatchSize();
+
+        for (int from = 0; from < attemptIds.length; from += batchSize) {
+            long[] batch = Arrays.copyOfRange(attemptIds, from,
+                    Math.min(attemptIds.length, from + batchSize));
+            try {
+                attemptExpiryExecutor.execute(() -> autoSubmitWithRetry(batch));
+            } catch (RejectedExecutionException e) {
+                log.warn("Expiry queue full, leaving {} attempts to the sweeper", batch.length);
+            }
+        }
     }
-}
 
+    private void autoSubmitWithRetry(long[] batch) {
+        QuizAppProperties.Expiry expiry = properties.getExpiry();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                quizAttemptService.autoSubmitAttempts(batch);
+                return;
+            } catch (Exception e) {
+                if (attempt >= expiry.getMaxAttempts()) {
+                    log.error("Giving up auto-submit of {} attempts after {} tries, " +
+                            "leaving them to the sweeper", batch.length, attempt, e);
+                    return;
+                }
+                log.warn("Auto-submit of {} attempts failed (try {}), retrying",
+                        batch.length, attempt, e);
+            }
+
+            try {
+                Thread.sleep(expiry.getRetryBackoffMs() * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.repositories.QuizAttemptRepository;
+import app.quiz.glass.repositories.projections.AttemptDeadline;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+/**
+ * Keeps attempt expiry working across restarts. On boot the timers of every attempt
+ * still running are put back on the wheel (in a cluster, partition by partition as
+ * leases are acquired); attempts that expired while no node was up are left to the
+ * sweeper, which finalizes them in bounded batches.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AttemptExpirySweeper {
+
+    private final QuizAttemptRepository attemptRepository;
+    private final QuizAttemptService attemptService;
+    private final TimerService timerService;
+    private final TimerPartitions timerPartitions;
+    private final QuizAppProperties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void restoreTimers() {
+        if (properties.getCluster().getEnabled()) {
+            // TimerPartitionManager restores each partition as it is acquired
+            return;
+        }
+
+        int restored = 0;
+        try (Stream<AttemptDeadline> deadlines =
+                     attemptRepository.streamActiveDeadlines(LocalDateTime.now())) {
+            for (AttemptDeadline deadline : (Iterable<AttemptDeadline>) deadlines::iterator) {
+                timerService.startTimer(deadline.getId(),
+                        TimerService.toEpochMillis(deadline.getExpiresAt()), deadline.getUserName());
+                restored++;
+            }
+        }
+        log.info("Restored {} attempt timers", restored);
+    }
+
+    /**
+     * Puts back the timers of running attempts in the given partitions that were started
+     * at or after {@code startedSince}; returns how many.
+     */
+    @Transactional(readOnly = true)
+    public int restoreTimers(Collection<Long> partitions, LocalDateTime startedSince) {
+        int restored = 0;
+        try (Stream<AttemptDeadline> deadlines = attemptRepository.streamActiveDeadlines(
+                LocalDateTime.now(), startedSince, timerPartitions.count(), partitions)) {
+            for (AttemptDeadline deadline : (Iterable<AttemptDeadline>) deadlines::iterator) {
+                timerService.startTimer(deadline.getId(),
+                        TimerService.toEpochMillis(deadline.getExpiresAt()), deadline.getUserName());
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    @Scheduled(fixedDelayString = "${quiz.timer.sweep-interval:30000}")
+    public void sweepExpiredAttempts() {
+        int batchSize = properties.getTimer().getSweepBatchSize();
+        int total = 0;
+        int claimed;
+
+        do {
+            try {
+                claimed = attemptService.sweepExpiredAttempts(batchSize);
+            } catch (Exception e) {
+                log.error("Error sweeping expired attempts", e);
+                break;
+            }
+            total += claimed;
+        } while (claimed == batchSize);
+
+        if (total > 0) {
+            log.info("Expiry sweeper finalized {} attempts", total);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.dto.result.QuizResultDTO;
+import app.quiz.glass.entities.AttemptResult;
+import app.quiz.glass.repositories.AttemptResultRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores and reads the rendered results of finished attempts; see {@link AttemptResult}.
+ */
+@Component
+public class AttemptResultStore {
+
+    private final AttemptResultRepository resultRepository;
+    private final ObjectWriter resultWriter;
+
+    public AttemptResultStore(AttemptResultRepository resultRepository, ObjectMapper objectMapper) {
+        this.resultRepository = resultRepository;
+        this.resultWriter = objectMapper.writerFor(QuizResultDTO.class);
+    }
+
+    public Optional<AttemptResult> find(Long attemptId, Long userId) {
+        return resultRepository.findByAttemptIdAndUserId(attemptId, userId);
+    }
+
+    /**
+     * Renders the result and stores it in the current transaction, unless it is stored
+     * already.
+     */
+    public AttemptResult save(QuizResultDTO result, Long userId) {
+        byte[] json;
+        try {
+            json = resultWriter.writeValueAsBytes(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render attempt result", e);
+        }
+
+        AttemptResult snapshot = AttemptResult.builder()
+                .attemptId(result.getAttemptId())
+                .userId(userId)
+                .etag(DigestUtils.md5DigestAsHex(json))
+                .body(gzip(json))
+                .createdAt(LocalDateTime.now())
+                .build();
+        resultRepository.insertIfAbsent(snapshot.getAttemptId(), snapshot.getUserId(), snapshot.getEtag(),
+                snapshot.getBody(), snapshot.getCreatedAt());
+        return snapshot;
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Plain JSON of a stored result, for clients that do not accept gzip.
+     */
+    public static byte[] gunzip(byte[] body) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return gzip.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
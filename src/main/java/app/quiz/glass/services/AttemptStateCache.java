@@ -0,0 +1,152 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.entities.AttemptStatus;
+import app.quiz.glass.entities.QuizAttempt;
+import app.quiz.glass.repositories.QuizAttemptRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded in-process cache of what the student endpoints check on every request: owner,
+ * status, deadline and quiz. None of it changes while an attempt is in progress, so an
+ * entry is filled when the attempt starts (or on first use) and only replaced when the
+ * attempt is finalized on this node.
+ * <p>
+ * A finalized attempt stays cached with its final status, so a request racing the
+ * finalizer cannot load and cache the row it is about to change. If the finalizing
+ * transaction rolls back the entry is dropped and reloaded on next use. When the cache is
+ * full, entries past their deadline are purged first; if that frees nothing new attempts
+ * are simply not cached.
+ */
+@Component
+public class AttemptStateCache {
+
+    private final QuizAttemptRepository attemptRepository;
+    private final int maxSize;
+    private final Counter hits;
+    private final Counter misses;
+    private final Map<Long, AttemptState> states = new ConcurrentHashMap<>();
+
+    public AttemptStateCache(QuizAttemptRepository attemptRepository, QuizAppProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.attemptRepository = attemptRepository;
+        this.maxSize = properties.getAttemptCache().getMaxSize();
+        this.hits = Counter.builder("glass.attempt.cache.gets").tag("result", "hit")
+                .description("Attempt validations answered from memory")
+                .register(meterRegistry);
+        this.misses = Counter.builder("glass.attempt.cache.gets").tag("result", "miss")
+                .description("Attempt validations that had to load the attempt")
+                .register(meterRegistry);
+        Gauge.builder("glass.attempt.cache.size", states, Map::size)
+                .description("Attempts currently cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the attempt if it belongs to the user, from memory when possible; throws
+     * "Attempt not found" otherwise. The status is not checked here.
+     */
+    public AttemptState get(Long attemptId, Long userId) {
+        AttemptState state = states.get(attemptId);
+        if (state != null) {
+            hits.increment();
+            if (!state.userId.equals(userId)) {
+                throw new RuntimeException("Attempt not found");
+            }
+            return state;
+        }
+
+        misses.increment();
+        QuizAttempt attempt = attemptRepository.findByIdAndUserId(attemptId, userId)
+                .orElseThrow(() -> new RuntimeException("Attempt not found"));
+        state = AttemptState.of(attempt);
+        if (state.status == AttemptStatus.IN_PROGRESS && reserve()) {
+            // Never overwrite: an entry written meanwhile is at least as recent
+            AttemptState existing = states.putIfAbsent(attemptId, state);
+            return existing != null ? existing : state;
+        }
+        return state;
+    }
+
+    /**
+     * Caches a freshly started attempt.
+     */
+    public void put(QuizAttempt attempt) {
+        if (reserve()) {
+            states.put(attempt.getId(), AttemptState.of(attempt));
+        }
+    }
+
+    /**
+     * Records that the attempt left {@code IN_PROGRESS} in the current transaction.
+     */
+    public void finish(Long attemptId, AttemptStatus finalStatus) {
+        states.computeIfPresent(attemptId, (id, state) -> state.withStatus(finalStatus));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        states.remove(attemptId);
+                    } else {
+                        // Drop an in-progress entry loaded by a request that raced the commit
+                        states.computeIfPresent(attemptId, (id, state) ->
+                                state.status == AttemptStatus.IN_PROGRESS ? null : state);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Forgets the attempt, so its next use reloads it; for attempts finalized on another node.
+     */
+    public void evict(Long attemptId) {
+        states.remove(attemptId);
+    }
+
+    private boolean reserve() {
+        if (states.size() < maxSize) {
+            return true;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        states.values().removeIf(state -> now.isAfter(state.expiresAt));
+        return states.size() < maxSize;
+    }
+
+    @Getter
+    @AllArgsConstructor(access = AccessLevel.PRIVATE)
+    public static final class AttemptState {
+        private final Long attemptId;
+        private final Long userId;
+        private final Long quizId;
+        private final LocalDateTime expiresAt;
+        private final AttemptStatus status;
+
+        private static AttemptState of(QuizAttempt attempt) {
+            return new AttemptState(attempt.getId(), attempt.getUser().getId(), attempt.getQuiz().getId(),
+                    attempt.getExpiresAt(), attempt.getStatus());
+        }
+
+        private AttemptState withStatus(AttemptStatus status) {
+            return new AttemptState(attemptId, userId, quizId, expiresAt, status);
+        }
+
+        public boolean isExpired() {
+            return LocalDateTime.now().isAfter(expiresAt);
+        }
+    }
+}
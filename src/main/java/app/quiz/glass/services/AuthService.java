@@ -5,6 +5,7 @@ import app.quiz.glass.dto.security.RegisterRequest;
 import app.quiz.glass.entities.User;
 import app.quiz.glass.entities.UserRole;
 import app.quiz.glass.repositories.UserRepository;
+import app.quiz.glass.security.GlassUserPrincipal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -39,6 +40,16 @@ public class AuthService {
         return userRepository.save(user);
     }
 
+    public AuthResponse buildAuthResponse(GlassUserPrincipal principal, String sessionId) {
+        return AuthResponse.builder()
+                .userId(principal.getId())
+                .email(principal.getUsername())
+                .fullName(principal.getFullName())
+                .role(principal.getRole().name())
+                .sessionId(sessionId)
+                .build();
+    }
+
     public AuthResponse buildAuthResponse(User user, String sessionId) {
         return AuthResponse.builder()
                 .userId(user.getId())
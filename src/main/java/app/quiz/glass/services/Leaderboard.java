@@ -0,0 +1,203 @@
+package app.quiz.glass.services;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Finished attempts of one quiz in leaderboard order (score descending, then earliest
+ * submission, then attempt id), kept in a treap whose nodes count their subtree. Adding an
+ * attempt and finding a position are O(log n); a page of k entries is O(log n + k).
+ * <p>
+ * Attempts are only ever added. Thread-safe.
+ */
+public final class Leaderboard {
+
+    static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::getScore).reversed()
+            .thenComparing(Entry::getSubmittedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingLong(Entry::getAttemptId);
+
+    private final Map<Long, Entry> byAttempt = new HashMap<>();
+    private final Map<Long, Entry> bestByUser = new HashMap<>();
+    private final SplittableRandom random = new SplittableRandom();
+    private Node root;
+
+    /**
+     * Adds a finished attempt; false if it is already on the board.
+     */
+    public synchronized boolean add(Entry entry) {
+        if (byAttempt.putIfAbsent(entry.getAttemptId(), entry) != null) {
+            return false;
+        }
+        root = insert(root, new Node(entry, random.nextInt()));
+        bestByUser.merge(entry.getUserId(), entry, (best, added) -> ORDER.compare(added, best) < 0 ? added : best);
+        return true;
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    /**
+     * Up to {@code limit} entries from position {@code offset} (0 is first place).
+     */
+    public synchronized Page page(int offset, int limit) {
+        List<Entry> entries = new ArrayList<>(Math.min(limit, size(root)));
+        collect(root, offset, (int) Math.min((long) offset + limit, Integer.MAX_VALUE), 0, entries);
+        return new Page(offset, entries, size(root));
+    }
+
+    /**
+     * The user's best attempt with up to {@code window} entries on either side, or null if
+     * the user has no finished attempt.
+     */
+    public synchronized Page around(Long userId, int window) {
+        Entry best = bestByUser.get(userId);
+        if (best == null) {
+            return null;
+        }
+        int position = positionOf(best);
+        int from = Math.max(0, position - window);
+        Page page = page(from, position - from + window + 1);
+        page.userPosition = position;
+        return page;
+    }
+
+    private int positionOf(Entry entry) {
+        int position = 0;
+        Node node = root;
+        while (node != null) {
+            int order = ORDER.compare(entry, node.entry);
+            if (order < 0) {
+                node = node.left;
+            } else {
+                position += size(node.left);
+                if (order == 0) {
+                    return position;
+                }
+                position++;
+                node = node.right;
+            }
+        }
+        return -1;
+    }
+
+    // Skips every subtree outside [from, to); base is the position of the subtree's first entry
+    private static void collect(Node node, int from, int to, int base, List<Entry> out) {
+        if (node == null || base >= to || base + node.size <= from) {
+            return;
+        }
+        collect(node.left, from, to, base, out);
+        int position = base + size(node.left);
+        if (position >= from && position < to) {
+            out.add(node.entry);
+        }
+        collect(node.right, from, to, position + 1, out);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (ORDER.compare(added.entry, node.entry) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                return rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                return rotateLeft(node);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        node.update();
+        left.right = node;
+        left.update();
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        node.update();
+        right.left = node;
+        right.update();
+        return right;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+        private final Entry entry;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(Entry entry, int priority) {
+            this.entry = entry;
+            this.priority = priority;
+        }
+
+        private void update() {
+            size = 1 + Leaderboard.size(left) + Leaderboard.size(right);
+        }
+    }
+
+    /**
+     * One finished attempt, with what the leaderboard shows of it.
+     */
+    @Getter
+    public static final class Entry {
+        private final long attemptId;
+        private final long userId;
+        private final String userName;
+        private final int score;
+        private final int totalPoints;
+        private final LocalDateTime submittedAt;
+
+        public Entry(long attemptId, long userId, String userName, int score, int totalPoints,
+                     LocalDateTime submittedAt) {
+            this.attemptId = attemptId;
+            this.userId = userId;
+            this.userName = userName;
+            this.score = score;
+            this.totalPoints = totalPoints;
+            this.submittedAt = submittedAt;
+        }
+    }
+
+    /**
+     * Consecutive entries starting at position {@code offset}, read together with the
+     * board's size.
+     */
+    @Getter
+    public static final class Page {
+        private final int offset;
+        private final List<Entry> entries;
+        private final int total;
+        // Position of the user's best attempt, for pages read with around()
+        private int userPosition = -1;
+
+        private Page(int offset, List<Entry> entries, int total) {
+            this.offset = offset;
+            this.entries = entries;
+            this.total = total;
+        }
+    }
+}
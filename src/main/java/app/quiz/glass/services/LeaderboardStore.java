@@ -0,0 +1,177 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.entities.QuizAttempt;
+import app.quiz.glass.repositories.QuizAttemptRepository;
+import app.quiz.glass.repositories.projections.LeaderboardRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory {@link Leaderboard} per quiz, loaded from the finished attempts on first read
+ * and added to as this node finalizes attempts.
+ * <p>
+ * A board knows the version of the quiz's statistics row it reflects (see
+ * {@link QuizStatsStore.Delta}). A local commit that moves the version by one from the
+ * board's adds its attempts and advances the board; from the moment its version is known
+ * the board counts as current for it, so reads racing the commit do not reload. A read
+ * that sees a newer version than the board accounts for (attempts finalized on another
+ * node, a quiz closed, a rebuild) reloads it, so boards lag by at most
+ * {@code quiz.stats-cache.ttl-ms}.
+ */
+@Slf4j
+@Component
+public class LeaderboardStore {
+
+    private final QuizAttemptRepository attemptRepository;
+    private final QuizStatsStore quizStatsStore;
+    private final int maxSize;
+    private final Map<Long, Board> boards = new ConcurrentHashMap<>();
+
+    public LeaderboardStore(QuizAttemptRepository attemptRepository, QuizStatsStore quizStatsStore,
+                            QuizAppProperties properties) {
+        this.attemptRepository = attemptRepository;
+        this.quizStatsStore = quizStatsStore;
+        this.maxSize = properties.getLeaderboard().getMaxSize();
+    }
+
+    /**
+     * Must run in a read-write transaction, like {@link QuizStatsStore#get}.
+     */
+    public Leaderboard get(Long quizId, int passingScore) {
+        long version = quizStatsStore.get(quizId, passingScore).getStats().currentVersion();
+        Board board = boards.get(quizId);
+        if (board != null && board.covers(version)) {
+            return board.leaderboard;
+        }
+
+        // Rows and version come from one statement, so the board holds exactly that version
+        Leaderboard leaderboard = new Leaderboard();
+        long loadedVersion = -1;
+        for (LeaderboardRow row : attemptRepository.findLeaderboardRows(quizId)) {
+            loadedVersion = row.getStatsVersion();
+            if (row.getAttemptId() != null) {
+                leaderboard.add(new Leaderboard.Entry(row.getAttemptId(), row.getUserId(), row.getUserName(),
+                        row.getScore(), row.getTotalPoints(), row.getSubmittedAt()));
+            }
+        }
+        log.debug("Loaded leaderboard of quiz {} at version {} with {} attempts",
+                quizId, loadedVersion, leaderboard.size());
+
+        evictIfFull();
+        boards.put(quizId, new Board(leaderboard, loadedVersion));
+        return leaderboard;
+    }
+
+    /**
+     * Adds a just-finalized attempt to its quiz's board once the transaction commits;
+     * {@code delta} is what {@link QuizStatsStore#addAttempt} returned for it. Quizzes
+     * without a loaded board get it when they are loaded.
+     */
+    public void addAfterCommit(QuizAttempt attempt, QuizStatsStore.Delta delta) {
+        Long quizId = attempt.getQuiz().getId();
+        if (!boards.containsKey(quizId)) {
+            return;
+        }
+        Leaderboard.Entry entry = new Leaderboard.Entry(attempt.getId(), attempt.getUser().getId(),
+                attempt.getUser().getFullName(), attempt.getScore(), attempt.getTotalPoints(),
+                attempt.getSubmittedAt().truncatedTo(ChronoUnit.MICROS));
+        pending().computeIfAbsent(delta, key -> new ArrayList<>()).add(entry);
+    }
+
+    // Entries added in the current transaction, by the statistics delta they belong to
+    @SuppressWarnings("unchecked")
+    private Map<QuizStatsStore.Delta, List<Leaderboard.Entry>> pending() {
+        Map<QuizStatsStore.Delta, List<Leaderboard.Entry>> pending =
+                (Map<QuizStatsStore.Delta, List<Leaderboard.Entry>>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        Map<QuizStatsStore.Delta, List<Leaderboard.Entry>> added = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, added);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // Runs after QuizStatsStore has applied the deltas and knows their versions
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                added.keySet().forEach(delta -> withBoard(delta, board -> board.expect(delta.getVersion())));
+            }
+
+            @Override
+            public void afterCommit() {
+                added.forEach((delta, entries) ->
+                        withBoard(delta, board -> board.add(delta.getVersion(), entries)));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(LeaderboardStore.this);
+                if (status != STATUS_COMMITTED) {
+                    added.keySet().forEach(delta -> withBoard(delta, Board::forgetExpected));
+                }
+            }
+        });
+        return added;
+    }
+
+    private void withBoard(QuizStatsStore.Delta delta, Consumer<Board> action) {
+        Board board = boards.get(delta.getQuizId());
+        if (board != null) {
+            action.accept(board);
+        }
+    }
+
+    private void evictIfFull() {
+        Iterator<Long> ids = boards.keySet().iterator();
+        while (boards.size() >= maxSize && ids.hasNext()) {
+            ids.next();
+            ids.remove();
+        }
+    }
+
+    private static final class Board {
+        private final Leaderboard leaderboard;
+        // Statistics version whose attempts are all on the board
+        private long version;
+        // Highest version a local transaction about to commit will bring the board to
+        private long expected;
+
+        private Board(Leaderboard leaderboard, long version) {
+            this.leaderboard = leaderboard;
+            this.version = version;
+            this.expected = version;
+        }
+
+        private synchronized boolean covers(long statsVersion) {
+            return statsVersion <= Math.max(version, expected);
+        }
+
+        private synchronized void expect(long next) {
+            if (next == Math.max(version, expected) + 1) {
+                expected = next;
+            }
+        }
+
+        // Adding twice is harmless, so entries go on even when the board missed a version
+        private synchronized void add(long next, List<Leaderboard.Entry> entries) {
+            entries.forEach(leaderboard::add);
+            if (next == version + 1) {
+                version = next;
+            }
+        }
+
+        private synchronized void forgetExpected() {
+            expected = version;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package app.quiz.glass.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Consistent-hash ring that maps timer partitions onto the live nodes. Each node is
+ * placed on the ring at several virtual points, so a node joining or leaving only moves
+ * the partitions next to its own points. Loads are bounded: a node that already holds
+ * {@link #LOAD_FACTOR} times its fair share is skipped and the partition moves on
+ * clockwise, which keeps small partition counts evenly spread. The slack above the fair
+ * share keeps those skips from cascading when a node joins or leaves. Every node computes
+ * the same assignment from the same node list, in any order.
+ */
+final class PartitionRing {
+
+    static final double LOAD_FACTOR = 1.25;
+
+    private PartitionRing() {
+    }
+
+    /**
+     * Returns the partitions that {@code nodeId} owns among {@code nodeIds}.
+     */
+    static BitSet assign(List<String> nodeIds, String nodeId, int partitions, int virtualNodes) {
+        BitSet owned = new BitSet(partitions);
+        int self = nodeIds.indexOf(nodeId);
+        if (self < 0) {
+            return owned;
+        }
+
+        // Each point packs its hash (high 48 bits) and owning node index (low 16 bits),
+        // so one sort orders the ring and remembers the owners
+        int points = nodeIds.size() * virtualNodes;
+        long[] ring = new long[points];
+        for (int n = 0; n < nodeIds.size(); n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                long h = hash(nodeIds.get(n) + "#" + v) >>> 16;
+                ring[n * virtualNodes + v] = (h << 16) | n;
+            }
+        }
+        Arrays.sort(ring);
+
+        int capacity = (int) Math.ceil(partitions * LOAD_FACTOR / nodeIds.size());
+        int[] load = new int[nodeIds.size()];
+        for (int p = 0; p < partitions; p++) {
+            long key = (hash("partition-" + p) >>> 16) << 16;
+            int i = Arrays.binarySearch(ring, key);
+            if (i < 0) {
+                i = -i - 1;
+            }
+
+            // Walk clockwise, wrapping past the last point, to the first node with room
+            int node = (int) (ring[i % points] & 0xffff);
+            while (load[node] == capacity) {
+                i++;
+                node = (int) (ring[i % points] & 0xffff);
+            }
+            load[node]++;
+            if (node == self) {
+                owned.set(p);
+            }
+        }
+        return owned;
+    }
+
+    // FNV-1a over the UTF-8 bytes, then a 64-bit finalizer; stable across JVMs
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -3,7 +3,6 @@ package app.quiz.glass.services;
 import app.quiz.glass.dto.question.CreateOptionRequest;
 import app.quiz.glass.dto.question.CreateQuestionRequest;
 import app.quiz.glass.dto.question.QuestionDTO;
-import app.quiz.glass.dto.question.QuestionOptionDTO;
 import app.quiz.glass.entities.Question;
 import app.quiz.glass.entities.QuestionOption;
 import app.quiz.glass.entities.Quiz;
@@ -15,8 +14,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -26,6 +25,7 @@ public class QuestionService {
     private final QuestionRepository questionRepository;
     private final QuestionOptionRepository optionRepository;
     private final QuizRepository quizRepository;
+    private final QuizContentCache contentCache;
 
     @Transactional
     public Question createQuestion(Long quizId, CreateQuestionRequest request) {
@@ -46,56 +46,35 @@ public class QuestionService {
                 .explanation(request.getExplanation())
                 .points(request.getPoints())
                 .orderIndex((int) currentCount)
+                .numericTolerance(request.getNumericTolerance())
                 .build();
 
         question = questionRepository.save(question);
 
-        // Create options
+        // Create options; inserted together in one JDBC batch on flush
         if (request.getOptions() != null && !request.getOptions().isEmpty()) {
+            List<QuestionOption> options = new ArrayList<>();
             for (int i = 0; i < request.getOptions().size(); i++) {
                 CreateOptionRequest optReq = request.getOptions().get(i);
-                QuestionOption option = QuestionOption.builder()
+                options.add(QuestionOption.builder()
                         .question(question)
                         .optionText(optReq.getOptionText())
                         .isCorrect(optReq.getIsCorrect())
                         .orderIndex(i)
-                        .build();
-                optionRepository.save(option);
+                        .build());
             }
+            optionRepository.saveAll(options);
         }
 
         return question;
     }
 
 
-    @Transactional(readOnly = true)
     public List<QuestionDTO> getQuizQuestions(Long quizId, boolean includeAnswers) {
-        List<Question> questions = questionRepository.findByQuizIdWithOptions(quizId);
-
-        return questions.stream()
-                .map(q -> toDTO(q, includeAnswers))
-                .collect(Collectors.toList());
+        return contentCache.get(quizId).questions(includeAnswers);
     }
 
-    private QuestionDTO toDTO(Question question, boolean includeAnswers) {
-        List<QuestionOptionDTO> options = question.getOptions().stream()
-                .map(opt -> QuestionOptionDTO.builder()
-                        .id(opt.getId())
-                        .optionText(opt.getOptionText())
-                        .orderIndex(opt.getOrderIndex())
-                        .isCorrect(includeAnswers ? opt.getIsCorrect() : null)
-                        .build())
-                .collect(Collectors.toList());
-
-        return QuestionDTO.builder()
-                .id(question.getId())
-                .quizId(question.getQuiz().getId())
-                .type(question.getType())
-                .questionText(question.getQuestionText())
-                .points(question.getPoints())
-                .orderIndex(question.getOrderIndex())
-                .options(options)
-                .explanation(includeAnswers ? question.getExplanation() : null)
-                .build();
+    public byte[] getQuizQuestionsJson(Long quizId, boolean includeAnswers) {
+        return contentCache.get(quizId).questionsJson(includeAnswers);
     }
 }
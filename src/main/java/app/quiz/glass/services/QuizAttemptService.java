@@ -4,15 +4,16 @@ import app.quiz.glass.dto.answer.AnswerDTO;
 import app.quiz.glass.dto.answer.SubmitAnswerRequest;
 import app.quiz.glass.dto.answer.SubmitAnswerResponse;
 import app.quiz.glass.dto.question.QuestionDTO;
-import app.quiz.glass.dto.question.QuestionOptionDTO;
 import app.quiz.glass.dto.quiz.StartQuizResponse;
 import app.quiz.glass.dto.result.QuestionResultDTO;
 import app.quiz.glass.dto.result.QuizResultDTO;
 import app.quiz.glass.entities.*;
 import app.quiz.glass.repositories.AnswerRepository;
-import app.quiz.glass.repositories.QuestionRepository;
 import app.quiz.glass.repositories.QuizAttemptRepository;
 import app.quiz.glass.repositories.QuizRepository;
+import app.quiz.glass.repositories.UserRepository;
+import app.quiz.glass.repositories.projections.AttemptDeadline;
+import app.quiz.glass.repositories.projections.AttemptTotals;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
@@ -20,7 +21,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -31,16 +35,22 @@ public class QuizAttemptService {
 
     private final QuizAttemptRepository attemptRepository;
     private final QuizRepository quizRepository;
-    private final QuestionRepository questionRepository;
+    private final UserRepository userRepository;
     private final AnswerRepository answerRepository;
     private final TimerService timerService;
+    private final AnswerBuffer answerBuffer;
+    private final AttemptStateCache attemptStateCache;
+    private final QuizContentCache contentCache;
+    private final AttemptResultStore attemptResultStore;
+    private final QuizStatsStore quizStatsStore;
+    private final LeaderboardStore leaderboardStore;
     private final SimpMessagingTemplate messagingTemplate;
 
     @Transactional
-    public StartQuizResponse startQuiz(Long quizId, User user) {
+    public StartQuizResponse startQuiz(Long quizId, Long userId, String userName) {
         // Check for existing active attempt
         Optional<QuizAttempt> existingAttempt = attemptRepository
-                .findActiveAttempt(user.getId(), quizId);
+                .findActiveAttempt(userId, quizId);
 
         if (existingAttempt.isPresent()) {
             throw new RuntimeException("You already have an active attempt for this quiz");
@@ -62,26 +72,29 @@ public class QuizAttemptService {
         }
 
         QuizAttempt attempt = QuizAttempt.builder()
-                .user(user)
+                .user(userRepository.getReferenceById(userId))
                 .quiz(quiz)
                 .status(AttemptStatus.IN_PROGRESS)
                 .startedAt(now)
                 .expiresAt(expiresAt)
                 .currentQuestionIndex(0)
+                .score(0)
+                .totalPoints(0)
+                .answeredCount(0)
                 .build();
 
         attempt = attemptRepository.save(attempt);
+        attemptStateCache.put(attempt);
 
         // Start timer
-        timerService.startTimer(attempt.getId(), expiresAt);
+        timerService.startTimer(attempt.getId(), TimerService.toEpochMillis(expiresAt), userName);
 
         // Get first question
-        List<Question> questions = questionRepository.findByQuizIdWithOptions(quizId);
-        QuestionDTO firstQuestion = questions.isEmpty() ? null :
-                toQuestionDTO(questions.get(0), false);
+        List<QuestionDTO> questions = contentCache.get(quizId).getQuestions();
+        QuestionDTO firstQuestion = questions.isEmpty() ? null : questions.get(0);
 
         log.info("User {} started quiz {} with attempt {}",
-                user.getId(), quizId, attempt.getId());
+                userId, quizId, attempt.getId());
 
         return StartQuizResponse.builder()
                 .attemptId(attempt.getId())
@@ -95,108 +108,61 @@ public class QuizAttemptService {
                 .build();
     }
 
-    @Transactional(readOnly = true)
-    public QuestionDTO getQuestion(Long attemptId, int questionIndex, Long userId) {
-        QuizAttempt attempt = attemptRepository.findByIdAndUserId(attemptId, userId)
-                .orElseThrow(() -> new RuntimeException("Attempt not found"));
+    /**
+     * Returns the question at {@code questionIndex} as ready-to-send JSON from the quiz's
+     * content snapshot.
+     */
+    public byte[] getQuestionJson(Long attemptId, int questionIndex, Long userId) {
+        AttemptStateCache.AttemptState attempt = attemptStateCache.get(attemptId, userId);
 
         if (attempt.getStatus() != AttemptStatus.IN_PROGRESS) {
             throw new RuntimeException("Attempt is not in progress");
         }
 
+        // Finalized by the timer or the expiry sweeper, under the attempt's row lock
         if (attempt.isExpired()) {
-            autoSubmitAttempt(attemptId);
             throw new RuntimeException("Quiz time has expired");
         }
 
-        List<Question> questions = questionRepository
-                .findByQuizIdOrderByOrderIndexAsc(attempt.getQuiz().getId());
+        byte[] question = contentCache.get(attempt.getQuizId()).questionJson(questionIndex);
 
-        if (questionIndex < 0 || questionIndex >= questions.size()) {
-            throw new RuntimeException("Invalid question index");
-        }
-
-        attempt.setCurrentQuestionIndex(questionIndex);
-        attemptRepository.save(attempt);
+        // Kept in memory and saved with the next answer flush, not on every navigation
+        answerBuffer.notePosition(attemptId, questionIndex);
 
-        return toQuestionDTO(questions.get(questionIndex), false);
+        return question;
     }
 
-    @Transactional
+    /**
+     * Acknowledges the answer from the write-behind buffer; it reaches the database on the
+     * next debounce flush, or when the attempt is finalized.
+     */
     public SubmitAnswerResponse submitAnswer(SubmitAnswerRequest request, Long userId) {
-        QuizAttempt attempt = attemptRepository.findByIdAndUserId(request.getAttemptId(), userId)
-                .orElseThrow(() -> new RuntimeException("Attempt not found"));
-
-        if (attempt.getStatus() != AttemptStatus.IN_PROGRESS) {
-            throw new RuntimeException("Attempt is not in progress");
-        }
-
-        if (attempt.isExpired()) {
-            autoSubmitAttempt(request.getAttemptId());
-            throw new RuntimeException("Quiz time has expired");
-        }
-
-        Question question = questionRepository.findById(request.getQuestionId())
-                .orElseThrow(() -> new RuntimeException("Question not found"));
-
-        // Check if answer already exists
-        Optional<Answer> existingAnswer = answerRepository
-                .findByAttemptIdAndQuestionId(request.getAttemptId(), request.getQuestionId());
-
-        Answer answer = existingAnswer.orElse(Answer.builder()
-                .attempt(attempt)
-                .question(question)
-                .build());
-
-        // Update answer based on question type
-        if (question.getType() == QuestionType.NUMERICAL) {
-            answer.setNumericalAnswer(request.getNumericalAnswer());
-            answer.setSelectedOption(null);
-        } else {
-            QuestionOption option = question.getOptions().stream()
-                    .filter(opt -> opt.getId().equals(request.getSelectedOptionId()))
-                    .findFirst()
-                    .orElseThrow(() -> new RuntimeException("Invalid option"));
-            answer.setSelectedOption(option);
-            answer.setNumericalAnswer(null);
-        }
-
-        answer.setLastModifiedAt(LocalDateTime.now());
-        if (answer.getAnsweredAt() == null) {
-            answer.setAnsweredAt(LocalDateTime.now());
-        }
-
-        answerRepository.save(answer);
-
-        long answeredCount = answerRepository.findByAttemptId(attempt.getId()).size();
-        long totalQuestions = questionRepository.countByQuizId(attempt.getQuiz().getId());
-
-        log.info("Answer saved for attempt {} question {}",
-                request.getAttemptId(), request.getQuestionId());
-
-        return SubmitAnswerResponse.builder()
-                .saved(true)
-                .message("Answer saved successfully")
-                .answeredCount((int) answeredCount)
-                .totalQuestions((int) totalQuestions)
-                .build();
+        return answerBuffer.record(request, userId);
     }
 
     @Transactional
     public QuizResultDTO submitQuiz(Long attemptId, Long userId) {
-        QuizAttempt attempt = attemptRepository.findByIdAndUserId(attemptId, userId)
-                .orElseThrow(() -> new RuntimeException("Attempt not found"));
+        if (attemptStateCache.get(attemptId, userId).getStatus() != AttemptStatus.IN_PROGRESS) {
+            throw new RuntimeException("Attempt already submitted");
+        }
 
+        // Row lock; the attempt may have been finalized on another node since it was cached
+        QuizAttempt attempt = attemptRepository.findByIdForUpdate(attemptId)
+                .orElseThrow(() -> new RuntimeException("Attempt not found"));
         if (attempt.getStatus() != AttemptStatus.IN_PROGRESS) {
             throw new RuntimeException("Attempt already submitted");
         }
 
-        return finalizeAttempt(attempt, AttemptStatus.SUBMITTED);
+        finalizeAttempt(attempt, AttemptStatus.SUBMITTED);
+        QuizResultDTO result = getQuizResult(attemptId, userId);
+        attemptResultStore.save(result, userId);
+        return result;
     }
 
     @Transactional
     public void autoSubmitAttempt(Long attemptId) {
-        QuizAttempt attempt = attemptRepository.findById(attemptId)
+        // Row lock so the timer path and the expiry sweeper never both finalize
+        QuizAttempt attempt = attemptRepository.findByIdForUpdate(attemptId)
                 .orElseThrow(() -> new RuntimeException("Attempt not found"));
 
         if (attempt.getStatus() == AttemptStatus.IN_PROGRESS) {
@@ -204,62 +170,66 @@ public class QuizAttemptService {
         }
     }
 
-    private QuizResultDTO finalizeAttempt(QuizAttempt attempt, AttemptStatus status) {
+    private void finalizeAttempt(QuizAttempt attempt, AttemptStatus status) {
         timerService.stopTimer(attempt.getId());
+        answerBuffer.flushAndClose(attempt.getId());
+        attemptStateCache.finish(attempt.getId(), status);
 
+        // Answers were graded when saved and moved the running totals on the row, which the
+        // flush may just have done behind the loaded entity; those totals are the result
+        AttemptTotals totals = attemptRepository.findTotalsById(attempt.getId());
         attempt.setStatus(status);
         attempt.setSubmittedAt(LocalDateTime.now());
+        attempt.setScore(Objects.requireNonNullElse(totals.getScore(), 0));
+        attempt.setTotalPoints(Objects.requireNonNullElse(totals.getTotalPoints(), 0));
+        attempt.setAnsweredCount(totals.getAnsweredCount());
+        attemptRepository.save(attempt);
 
-        // Grade all answers
-        List<Answer> answers = answerRepository.findByAttemptId(attempt.getId());
-        int totalScore = 0;
-        int totalPoints = 0;
-
-        for (Answer answer : answers) {
-            Question question = answer.getQuestion();
-            totalPoints += question.getPoints();
+        QuizStatsStore.Delta delta = quizStatsStore.addAttempt(attempt.getQuiz().getId(), attempt.getId(),
+                attempt.getQuiz().getPassingScore());
+        leaderboardStore.addAfterCommit(attempt, delta);
 
-            boolean isCorrect = gradeAnswer(answer, question);
-            answer.setIsCorrect(isCorrect);
-            answer.setPointsEarned(isCorrect ? question.getPoints() : 0);
-            totalScore += answer.getPointsEarned();
+        log.info("Attempt {} finalized with status {} - Score: {}/{}",
+                attempt.getId(), status, attempt.getScore(), attempt.getTotalPoints());
+    }
 
-            answerRepository.save(answer);
+    /**
+     * Closes out every attempt still in progress on a quiz whose window has ended, using
+     * set-based statements instead of per-attempt finalization: one lock and one UPDATE
+     * over attempts, which keeps their running totals. Returns the closed attempts
+     * so the caller can notify the timer and WebSocket layers after commit.
+     */
+    @Transactional
+    public List<AttemptDeadline> closeQuizAttempts(Long quizId) {
+        List<AttemptDeadline> attempts = attemptRepository.lockInProgressAttempts(quizId);
+        if (attempts.isEmpty()) {
+            return attempts;
         }
 
-        attempt.setScore(totalScore);
-        attempt.setTotalPoints(totalPoints);
-        attemptRepository.save(attempt);
+        answerBuffer.flushAndCloseQuiz(quizId);
+        attempts.forEach(attempt -> attemptStateCache.finish(attempt.getId(), AttemptStatus.AUTO_SUBMITTED));
+        Quiz quiz = quizRepository.findById(quizId)
+                .orElseThrow(() -> new RuntimeException("Quiz not found"));
+        attemptRepository.finalizeInProgressAttempts(quizId, LocalDateTime.now());
+        quizStatsStore.addAttempts(quizId, attempts.stream().map(AttemptDeadline::getId).toList(),
+                quiz.getPassingScore());
 
-        log.info("Attempt {} finalized with status {} - Score: {}/{}",
-                attempt.getId(), status, totalScore, totalPoints);
+        log.info("Quiz {} closed - {} attempts auto-submitted", quizId, attempts.size());
 
-        return getQuizResult(attempt.getId(), attempt.getUser().getId());
+        return attempts;
     }
 
-    private boolean gradeAnswer(Answer answer, Question question) {
-        switch (question.getType()) {
-            case MCQ:
-            case TRUE_FALSE:
-                return answer.getSelectedOption() != null &&
-                        answer.getSelectedOption().getIsCorrect();
-
-            case NUMERICAL:
-                // Check against correct options (stored as numerical values in option text)
-                return question.getOptions().stream()
-                        .filter(QuestionOption::getIsCorrect)
-                        .anyMatch(opt -> {
-                            try {
-                                double correctValue = Double.parseDouble(opt.getOptionText());
-                                return Math.abs(correctValue - answer.getNumericalAnswer()) < 0.01;
-                            } catch (NumberFormatException e) {
-                                return false;
-                            }
-                        });
-
-            default:
-                return false;
+    /**
+     * The stored result of a finished attempt, in one lookup. Attempts finalized without a
+     * submit (auto-submit, quiz close) get theirs rendered on first view.
+     */
+    @Transactional
+    public AttemptResult getQuizResultSnapshot(Long attemptId, Long userId) {
+        Optional<AttemptResult> stored = attemptResultStore.find(attemptId, userId);
+        if (stored.isPresent()) {
+            return stored.get();
         }
+        return attemptResultStore.save(getQuizResult(attemptId, userId), userId);
     }
 
     @Transactional(readOnly = true)
@@ -272,15 +242,13 @@ public class QuizAttemptService {
         }
 
         List<Answer> answers = answerRepository.findByAttemptId(attemptId);
-        List<Question> questions = questionRepository
-                .findByQuizIdWithOptions(attempt.getQuiz().getId());
+        Map<Long, Answer> answersByQuestion = answers.stream()
+                .collect(Collectors.toMap(a -> a.getQuestion().getId(), a -> a));
+        List<QuestionDTO> questions = contentCache.get(attempt.getQuiz().getId()).getQuestionsWithAnswers();
 
         List<QuestionResultDTO> questionResults = questions.stream()
                 .map(question -> {
-                    Answer answer = answers.stream()
-                            .filter(a -> a.getQuestion().getId().equals(question.getId()))
-                            .findFirst()
-                            .orElse(null);
+                    Answer answer = answersByQuestion.get(question.getId());
 
                     return QuestionResultDTO.builder()
                             .questionId(question.getId())
@@ -291,7 +259,7 @@ public class QuizAttemptService {
                             .pointsEarned(answer != null ? answer.getPointsEarned() : 0)
                             .isCorrect(answer != null ? answer.getIsCorrect() : false)
                             .userAnswer(answer != null ? toAnswerDTO(answer) : null)
-                            .options(toOptionDTOs(question.getOptions(), true))
+                            .options(question.getOptions())
                             .build();
                 })
                 .collect(Collectors.toList());
@@ -315,41 +283,37 @@ public class QuizAttemptService {
                 .build();
     }
 
-    public void processExpiredAttempts() {
-        List<QuizAttempt> expiredAttempts = attemptRepository
-                .findExpiredAttempts(LocalDateTime.now());
+    /**
+     * Finalizes a batch of timer expiries in one transaction. Attempts already locked by
+     * another finalizer are skipped, as are those no longer in progress.
+     */
+    @Transactional
+    public void autoSubmitAttempts(long[] attemptIds) {
+        List<Long> claimed = attemptRepository
+                .claimInProgressAttempts(Arrays.stream(attemptIds).boxed().toList());
 
-        for (QuizAttempt attempt : expiredAttempts) {
-            try {
-                autoSubmitAttempt(attempt.getId());
-            } catch (Exception e) {
-                log.error("Error processing expired attempt {}", attempt.getId(), e);
-            }
+        for (Long attemptId : claimed) {
+            attemptRepository.findById(attemptId)
+                    .ifPresent(attempt -> finalizeAttempt(attempt, AttemptStatus.AUTO_SUBMITTED));
         }
     }
 
-    private QuestionDTO toQuestionDTO(Question question, boolean includeAnswers) {
-        return QuestionDTO.builder()
-                .id(question.getId())
-                .quizId(question.getQuiz().getId())
-                .type(question.getType())
-                .questionText(question.getQuestionText())
-                .points(question.getPoints())
-                .orderIndex(question.getOrderIndex())
-                .options(toOptionDTOs(question.getOptions(), includeAnswers))
-                .explanation(includeAnswers ? question.getExplanation() : null)
-                .build();
-    }
+    /**
+     * Claims up to {@code batchSize} expired attempts with {@code FOR UPDATE SKIP LOCKED}
+     * and finalizes them in this transaction. Returns the number of attempts claimed.
+     */
+    @Transactional
+    public int sweepExpiredAttempts(int batchSize) {
+        List<Long> attemptIds = attemptRepository
+                .claimExpiredAttempts(LocalDateTime.now(), batchSize);
+
+        for (Long attemptId : attemptIds) {
+            attemptRepository.findById(attemptId)
+                    .filter(attempt -> attempt.getStatus() == AttemptStatus.IN_PROGRESS)
+                    .ifPresent(attempt -> finalizeAttempt(attempt, AttemptStatus.AUTO_SUBMITTED));
+        }
 
-    private List<QuestionOptionDTO> toOptionDTOs(List<QuestionOption> options, boolean includeAnswers) {
-        return options.stream()
-                .map(opt -> QuestionOptionDTO.builder()
-                        .id(opt.getId())
-                        .optionText(opt.getOptionText())
-                        .orderIndex(opt.getOrderIndex())
-                        .isCorrect(includeAnswers ? opt.getIsCorrect() : null)
-                        .build())
-                .collect(Collectors.toList());
+        return attemptIds.size();
     }
 
     private AnswerDTO toAnswerDTO(Answer answer) {
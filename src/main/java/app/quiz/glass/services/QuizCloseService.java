@@ -0,0 +1,49 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.repositories.QuizAttemptRepository;
+import app.quiz.glass.repositories.projections.AttemptDeadline;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bulk close-out of quizzes whose window has ended. Attempts cut off by the quiz end
+ * time all expire together, so they are graded and scored with a few set-based
+ * statements instead of one finalize per attempt.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QuizCloseService {
+
+    private final QuizAttemptRepository attemptRepository;
+    private final QuizAttemptService attemptService;
+    private final TimerService timerService;
+
+    @Scheduled(fixedDelayString = "${quiz.expiry.quiz-close-interval:5000}")
+    public void closeEndedQuizzes() {
+        List<Long> quizIds = attemptRepository
+                .findClosedQuizzesWithOpenAttempts(LocalDateTime.now());
+
+        for (Long quizId : quizIds) {
+            try {
+                closeQuiz(quizId);
+            } catch (Exception e) {
+                log.error("Error closing quiz {}", quizId, e);
+            }
+        }
+    }
+
+    public void closeQuiz(Long quizId) {
+        List<AttemptDeadline> attempts = attemptService.closeQuizAttempts(quizId);
+
+        // Committed; now stop the timers and tell the clients
+        for (AttemptDeadline attempt : attempts) {
+            timerService.expireTimer(attempt.getId(), attempt.getUserName());
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.dto.question.QuestionDTO;
+import app.quiz.glass.dto.question.QuestionOptionDTO;
+import app.quiz.glass.entities.Question;
+import app.quiz.glass.entities.Quiz;
+import app.quiz.glass.repositories.QuestionRepository;
+import app.quiz.glass.repositories.QuizRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Snapshots of quiz content: every question with its options, as DTOs and as pre-rendered
+ * JSON, with and without the answers, and the compiled {@link AnswerKey}.
+ * <p>
+ * Questions cannot be added to a published quiz, so a published quiz's snapshot never
+ * goes stale; it is built on first access and kept. Unpublished quizzes are still being
+ * authored and are built fresh on every call. Publishing builds the snapshot up front. When more than
+ * {@code quiz.content-cache.max-size} quizzes are cached, ended quizzes are dropped first.
+ * <p>
+ * The DTOs are shared between requests and must not be modified.
+ */
+@Component
+public class QuizContentCache {
+
+    private final QuizRepository quizRepository;
+    private final QuestionRepository questionRepository;
+    private final ObjectWriter questionWriter;
+    private final ObjectWriter listWriter;
+    private final int maxSize;
+    private final Map<Long, QuizContent> contents = new ConcurrentHashMap<>();
+
+    public QuizContentCache(QuizRepository quizRepository, QuestionRepository questionRepository,
+                            ObjectMapper objectMapper, QuizAppProperties properties) {
+        this.quizRepository = quizRepository;
+        this.questionRepository = questionRepository;
+        this.questionWriter = objectMapper.writerFor(QuestionDTO.class);
+        this.listWriter = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, QuestionDTO.class));
+        this.maxSize = properties.getContentCache().getMaxSize();
+    }
+
+    public QuizContent get(Long quizId) {
+        QuizContent content = contents.get(quizId);
+        if (content != null) {
+            return content;
+        }
+
+        Quiz quiz = quizRepository.findById(quizId)
+                .orElseThrow(() -> new RuntimeException("Quiz not found"));
+        content = build(quiz, questionRepository.findByQuizIdWithOptions(quizId));
+        if (!Boolean.TRUE.equals(quiz.getPublished())) {
+            return content;
+        }
+
+        evictIfFull();
+        QuizContent existing = contents.putIfAbsent(quizId, content);
+        return existing != null ? existing : content;
+    }
+
+    /**
+     * Builds the snapshot of a quiz being published once the current transaction commits,
+     * so the first students do not pay for it.
+     */
+    public void warmAfterCommit(Long quizId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            get(quizId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                get(quizId);
+            }
+        });
+    }
+
+    private void evictIfFull() {
+        if (contents.size() < maxSize) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        contents.values().removeIf(content -> content.endTime.isBefore(now));
+
+        Iterator<Long> ids = contents.keySet().iterator();
+        while (contents.size() >= maxSize && ids.hasNext()) {
+            ids.next();
+            ids.remove();
+        }
+    }
+
+    private QuizContent build(Quiz quiz, List<Question> questions) {
+        List<QuestionDTO> plain = questions.stream().map(q -> toDTO(q, false)).toList();
+        List<QuestionDTO> withAnswers = questions.stream().map(q -> toDTO(q, true)).toList();
+
+        byte[][] questionJson = new byte[plain.size()][];
+        for (int i = 0; i < plain.size(); i++) {
+            questionJson[i] = write(questionWriter, plain.get(i));
+        }
+        int totalPoints = questions.stream().mapToInt(Question::getPoints).sum();
+
+        return new QuizContent(quiz.getId(), quiz.getEndTime(), plain, withAnswers, questionJson,
+                write(listWriter, plain), write(listWriter, withAnswers), totalPoints,
+                AnswerKey.compile(questions));
+    }
+
+    private static byte[] write(ObjectWriter writer, Object value) {
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render quiz content", e);
+        }
+    }
+
+    private static QuestionDTO toDTO(Question question, boolean includeAnswers) {
+        List<QuestionOptionDTO> options = question.getOptions().stream()
+                .map(opt -> QuestionOptionDTO.builder()
+                        .id(opt.getId())
+                        .optionText(opt.getOptionText())
+                        .orderIndex(opt.getOrderIndex())
+                        .isCorrect(includeAnswers ? opt.getIsCorrect() : null)
+                        .build())
+                .toList();
+
+        return QuestionDTO.builder()
+                .id(question.getId())
+                .quizId(question.getQuiz().getId())
+                .type(question.getType())
+                .questionText(question.getQuestionText())
+                .points(question.getPoints())
+                .orderIndex(question.getOrderIndex())
+                .options(options)
+                .explanation(includeAnswers ? question.getExplanation() : null)
+                .build();
+    }
+
+    /**
+     * Questions are in {@code orderIndex} order, so list position is the question index.
+     */
+    @Getter
+    public static final class QuizContent {
+        private final Long quizId;
+        private final LocalDateTime endTime;
+        private final List<QuestionDTO> questions;
+        private final List<QuestionDTO> questionsWithAnswers;
+        private final byte[][] questionJson;
+        private final byte[] questionsJson;
+        private final byte[] questionsWithAnswersJson;
+        private final int totalPoints;
+        private final AnswerKey answerKey;
+
+        private QuizContent(Long quizId, LocalDateTime endTime, List<QuestionDTO> questions,
+                            List<QuestionDTO> questionsWithAnswers, byte[][] questionJson,
+                            byte[] questionsJson, byte[] questionsWithAnswersJson, int totalPoints,
+                            AnswerKey answerKey) {
+            this.quizId = quizId;
+            this.endTime = endTime;
+            this.questions = questions;
+            this.questionsWithAnswers = questionsWithAnswers;
+            this.questionJson = questionJson;
+            this.questionsJson = questionsJson;
+            this.questionsWithAnswersJson = questionsWithAnswersJson;
+            this.totalPoints = totalPoints;
+            this.answerKey = answerKey;
+        }
+
+        public int size() {
+            return questions.size();
+        }
+
+        public List<QuestionDTO> questions(boolean includeAnswers) {
+            return includeAnswers ? questionsWithAnswers : questions;
+        }
+
+        public byte[] questionsJson(boolean includeAnswers) {
+            return includeAnswers ? questionsWithAnswersJson : questionsJson;
+        }
+
+        /**
+         * Answer-free JSON of the question at {@code index}.
+         */
+        public byte[] questionJson(int index) {
+            if (index < 0 || index >= questionJson.length) {
+                throw new RuntimeException("Invalid question index");
+            }
+            return questionJson[index];
+        }
+    }
+}
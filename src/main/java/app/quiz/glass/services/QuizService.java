@@ -5,10 +5,10 @@ import app.quiz.glass.dto.quiz.CreateQuizRequest;
 import app.quiz.glass.dto.quiz.QuizDTO;
 import app.quiz.glass.entities.Question;
 import app.quiz.glass.entities.Quiz;
-import app.quiz.glass.entities.User;
 import app.quiz.glass.repositories.QuestionRepository;
 import app.quiz.glass.repositories.QuizAttemptRepository;
 import app.quiz.glass.repositories.QuizRepository;
+import app.quiz.glass.repositories.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -30,9 +30,11 @@ public class QuizService {
     private final QuizRepository quizRepository;
     private final QuestionRepository questionRepository;
     private final QuizAttemptRepository attemptRepository;
+    private final UserRepository userRepository;
+    private final QuizContentCache contentCache;
 
     @Transactional
-    public Quiz createQuiz(CreateQuizRequest request, User createdBy) {
+    public Quiz createQuiz(CreateQuizRequest request, Long createdById) {
         Quiz quiz = Quiz.builder()
                 .title(request.getTitle())
                 .description(request.getDescription())
@@ -43,7 +45,7 @@ public class QuizService {
                 .shuffleOptions(request.getShuffleOptions())
                 .passingScore(request.getPassingScore())
                 .published(false)
-                .createdBy(createdBy)
+                .createdBy(userRepository.getReferenceById(createdById))
                 .createdAt(LocalDateTime.now())
                 .build();
 
@@ -61,6 +63,7 @@ public class QuizService {
         }
 
         quiz.setPublished(true);
+        contentCache.warmAfterCommit(quizId);
         return quizRepository.save(quiz);
     }
 
@@ -0,0 +1,285 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.entities.QuestionStats;
+import app.quiz.glass.entities.QuizScoreBucket;
+import app.quiz.glass.entities.QuizStats;
+import app.quiz.glass.repositories.QuestionRepository;
+import app.quiz.glass.repositories.QuestionStatsRepository;
+import app.quiz.glass.repositories.QuizAttemptRepository;
+import app.quiz.glass.repositories.QuizScoreBucketRepository;
+import app.quiz.glass.repositories.QuizStatsRepository;
+import app.quiz.glass.repositories.projections.QuestionAnswerStats;
+import app.quiz.glass.repositories.projections.QuizAttemptSummary;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Running statistics of each quiz's finished attempts, in {@code quiz_stats},
+ * {@code question_stats} and the {@code quiz_score_buckets} histogram. Finalization only
+ * notes the attempts; they are added right before the finalizing transaction commits,
+ * quiz by quiz in id order. The statistics still commit or roll back with the attempts,
+ * but a quiz's rows are locked for the commit alone, not while a result is rendered, and
+ * transactions finalizing several quizzes cannot deadlock. Reads are served from memory
+ * for {@code quiz.stats-cache.ttl-ms} and dropped when this node finalizes an attempt of
+ * the quiz.
+ * <p>
+ * A quiz without a row (finished before statistics were kept) is rebuilt from its
+ * attempts instead, on first read or first finalization; {@code QuizStatsBackfill} does
+ * the same at startup for rows that are missing or short. {@link #rebuild} can also be
+ * run by hand to verify the totals.
+ */
+@Slf4j
+@Component
+public class QuizStatsStore {
+
+    private final QuizStatsRepository quizStatsRepository;
+    private final QuestionStatsRepository questionStatsRepository;
+    private final QuizScoreBucketRepository scoreBucketRepository;
+    private final QuizAttemptRepository attemptRepository;
+    private final QuestionRepository questionRepository;
+    private final long ttlMs;
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public QuizStatsStore(QuizStatsRepository quizStatsRepository, QuestionStatsRepository questionStatsRepository,
+                          QuizScoreBucketRepository scoreBucketRepository, QuizAttemptRepository attemptRepository, QuestionRepository questionRepository,
+                          QuizAppProperties properties) {
+        this.quizStatsRepository = quizStatsRepository;
+        this.questionStatsRepository = questionStatsRepository;
+        this.scoreBucketRepository = scoreBucketRepository;
+        this.attemptRepository = attemptRepository;
+        this.questionRepository = questionRepository;
+        this.ttlMs = properties.getStatsCache().getTtlMs();
+    }
+
+    /**
+     * Adds a finalized attempt once the current transaction is about to commit. Returns
+     * what the transaction adds to the quiz.
+     */
+    public Delta addAttempt(Long quizId, Long attemptId, int passingScore) {
+        return addAttempts(quizId, List.of(attemptId), passingScore);
+    }
+
+    /**
+     * Adds finalized attempts of a quiz once the current transaction is about to commit;
+     * their final totals and answers are read then. Without a transaction they are added
+     * right away.
+     */
+    public Delta addAttempts(Long quizId, Collection<Long> attemptIds, int passingScore) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Delta delta = new Delta(quizId, passingScore, new ArrayList<>(attemptIds));
+            apply(delta);
+            snapshots.remove(quizId);
+            return delta;
+        }
+        Delta delta = pending().computeIfAbsent(quizId, id -> new Delta(id, passingScore, new ArrayList<>()));
+        delta.attemptIds.addAll(attemptIds);
+        return delta;
+    }
+
+    /**
+     * Must run in a read-write transaction: a missing row is rebuilt.
+     */
+    public Snapshot get(Long quizId, int passingScore) {
+        long now = System.currentTimeMillis();
+        Snapshot snapshot = snapshots.get(quizId);
+        if (snapshot != null && now - snapshot.loadedAt < ttlMs) {
+            return snapshot;
+        }
+
+        QuizStats stats = quizStatsRepository.findById(quizId)
+                .orElseGet(() -> rebuild(quizId, passingScore));
+        Map<Long, QuestionStats> questions = questionStatsRepository.findByQuizId(quizId).stream()
+                .collect(Collectors.toMap(QuestionStats::getQuestionId, Function.identity()));
+        ScoreHistogram histogram = new ScoreHistogram();
+        for (QuizScoreBucket bucket : scoreBucketRepository.findByQuizId(quizId)) {
+            histogram.add(bucket.getPercent(), bucket.getAttemptCount());
+        }
+
+        snapshots.values().removeIf(cached -> now - cached.loadedAt >= ttlMs);
+        snapshot = new Snapshot(stats, questions, histogram, now);
+        snapshots.put(quizId, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Recomputes the quiz's statistics from its finished attempts and answers. Holds the
+     * statistics row lock, so finalizations of the quiz wait and are neither lost nor
+     * counted twice. Logs any difference from the running totals.
+     */
+    public QuizStats rebuild(Long quizId, int passingScore) {
+        boolean created = quizStatsRepository.createIfAbsent(quizId, LocalDateTime.now()) > 0;
+        return rebuild(quizId, passingScore, created);
+    }
+
+    private QuizStats rebuild(Long quizId, int passingScore, boolean created) {
+        LocalDateTime now = LocalDateTime.now();
+        QuizStats stats = quizStatsRepository.findByIdForUpdate(quizId)
+                .orElseThrow(() -> new RuntimeException("Quiz statistics row missing"));
+        long runningCount = stats.getFinishedCount();
+        long runningSum = stats.getScoreSum();
+
+        QuizAttemptSummary summary = attemptRepository.summarizeQuiz(quizId, passingScore);
+        stats.setFinishedCount(summary.getSubmittedAttempts());
+        stats.setScoreSum(summary.getScoreSum());
+        stats.setScoreSquareSum(summary.getScoreSquareSum());
+        stats.setMinScore(summary.getLowestScore());
+        stats.setMaxScore(summary.getHighestScore());
+        stats.setPassCount(summary.getPassedCount());
+        stats.setUpdatedAt(now);
+        stats.setVersion(stats.currentVersion() + 1);
+
+        questionStatsRepository.deleteByQuizId(quizId);
+        questionStatsRepository.saveAll(questionRepository.findAnswerStatsByQuizId(quizId).stream()
+                .filter(question -> question.getTotalAnswers() > 0)
+                .map(question -> toQuestionStats(quizId, question))
+                .toList());
+        scoreBucketRepository.deleteByQuizId(quizId);
+        scoreBucketRepository.insertFinishedAttempts(quizId);
+
+        if (!created && (runningCount != stats.getFinishedCount() || runningSum != stats.getScoreSum())) {
+            log.warn("Quiz {} statistics rebuilt: {} attempts / score sum {} were {} / {}",
+                    quizId, stats.getFinishedCount(), stats.getScoreSum(), runningCount, runningSum);
+        }
+        snapshots.remove(quizId);
+        evictAfterCommit(quizId);
+        return stats;
+    }
+
+    private void apply(Delta delta) {
+        if (delta.attemptIds.isEmpty()) {
+            return;
+        }
+        if (quizStatsRepository.createIfAbsent(delta.quizId, LocalDateTime.now()) > 0) {
+            // First statistics of the quiz: its earlier finished attempts are counted too
+            delta.version = rebuild(delta.quizId, delta.passingScore, true).currentVersion();
+            return;
+        }
+        quizStatsRepository.addAttempts(delta.quizId, delta.attemptIds, delta.passingScore, LocalDateTime.now());
+        delta.version = quizStatsRepository.findVersion(delta.quizId);
+        scoreBucketRepository.addAttempts(delta.quizId, delta.attemptIds);
+        questionStatsRepository.addAttemptAnswers(delta.quizId, delta.attemptIds);
+    }
+
+    // Attempts noted in the current transaction, by quiz id in ascending order
+    @SuppressWarnings("unchecked")
+    private Map<Long, Delta> pending() {
+        Map<Long, Delta> pending = (Map<Long, Delta>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        Map<Long, Delta> deltas = new TreeMap<>();
+        TransactionSynchronizationManager.bindResource(this, deltas);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // Ahead of synchronizations that read the versions, like the leaderboard's
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                deltas.values().forEach(QuizStatsStore.this::apply);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(QuizStatsStore.this);
+                deltas.keySet().forEach(snapshots::remove);
+            }
+        });
+        return deltas;
+    }
+
+    private static QuestionStats toQuestionStats(Long quizId, QuestionAnswerStats question) {
+        return QuestionStats.builder()
+                .questionId(question.getQuestionId())
+                .quizId(quizId)
+                .answerCount(question.getTotalAnswers())
+                .correctCount(question.getCorrectAnswers())
+                .pointsSum(question.getPointsSum())
+                .build();
+    }
+
+    private void evictAfterCommit(Long quizId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            snapshots.remove(quizId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                snapshots.remove(quizId);
+            }
+        });
+    }
+
+    /**
+     * Finalized attempts of one quiz added by the current transaction. Once they are added,
+     * right before commit, {@link #getVersion} is the statistics version they produced; each
+     * transaction moves a quiz's version by exactly one.
+     */
+    public static final class Delta {
+        @Getter
+        private final Long quizId;
+        private final int passingScore;
+        private final List<Long> attemptIds;
+        // 0 until added
+        @Getter
+        private long version;
+
+        private Delta(Long quizId, int passingScore, List<Long> attemptIds) {
+            this.quizId = quizId;
+            this.passingScore = passingScore;
+            this.attemptIds = attemptIds;
+        }
+    }
+
+    /**
+     * Statistics of one quiz as last read. Shared between requests; must not be modified.
+     */
+    @Getter
+    public static final class Snapshot {
+        private final QuizStats stats;
+        private final Map<Long, QuestionStats> questions;
+        private final ScoreHistogram histogram;
+        private final long loadedAt;
+
+        private Snapshot(QuizStats stats, Map<Long, QuestionStats> questions, ScoreHistogram histogram,
+                         long loadedAt) {
+            this.stats = stats;
+            this.questions = questions;
+            this.histogram = histogram;
+            this.loadedAt = loadedAt;
+        }
+
+        public double averageScore() {
+            long count = stats.getFinishedCount();
+            return count == 0 ? 0 : (double) stats.getScoreSum() / count;
+        }
+
+        // Population standard deviation, from the sum of squares
+        public double scoreStdDev() {
+            long count = stats.getFinishedCount();
+            if (count == 0) {
+                return 0;
+            }
+            double mean = averageScore();
+            return Math.sqrt(Math.max(0, (double) stats.getScoreSquareSum() / count - mean * mean));
+        }
+    }
+}
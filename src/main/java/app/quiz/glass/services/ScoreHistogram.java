@@ -0,0 +1,69 @@
+package app.quiz.glass.services;
+
+import java.util.Arrays;
+
+/**
+ * Attempt counts per whole score percentage, 0 to 100. Histograms of any nodes or quizzes
+ * merge by adding their counts, and percentiles are read from the cumulative counts
+ * without sorting attempts, exact to the percentage point.
+ * <p>
+ * Not thread-safe; histograms shared through a cache must not be modified.
+ */
+public final class ScoreHistogram {
+
+    public static final int BUCKETS = 101;
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+
+    /**
+     * Bucket of an attempt: its percentage rounded down, 0 without points. Must match the
+     * bucket computed in SQL by {@code QuizScoreBucketRepository}.
+     */
+    public static int bucketOf(int score, int totalPoints) {
+        if (totalPoints <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, Math.max(0, score * 100 / totalPoints));
+    }
+
+    public void add(int bucket, long count) {
+        counts[bucket] += count;
+        total += count;
+    }
+
+    public ScoreHistogram merge(ScoreHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        return this;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public long[] counts() {
+        return Arrays.copyOf(counts, BUCKETS);
+    }
+
+    /**
+     * Nearest-rank percentile: the lowest percentage reached by at least {@code fraction}
+     * of the attempts, or null without attempts.
+     */
+    public Integer percentile(double fraction) {
+        if (total == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i;
+            }
+        }
+        return BUCKETS - 1;
+    }
+}
@@ -0,0 +1,169 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.repositories.ClusterNodeRepository;
+import app.quiz.glass.repositories.TimerPartitionLeaseRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Spreads attempt timers over the nodes of a cluster. Every node heartbeats into
+ * {@code cluster_nodes}, assigns the timer partitions over the live nodes with a
+ * consistent-hash ring and takes a lease on its share in {@code timer_partition_leases}.
+ * A partition is only handed over once its previous owner released it or its lease ran
+ * out, so a dead node's partitions move after at most one lease TTL.
+ * <p>
+ * Leases keep the work split, they are not what makes expiry exactly-once: two nodes
+ * briefly holding the same timer both race for the row lock in
+ * {@link QuizAttemptService#autoSubmitAttempts}, and only one finalizes the attempt.
+ */
+@Slf4j
+@Component
+public class TimerPartitionManager {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ClusterNodeRepository nodeRepository;
+    private final TimerPartitionLeaseRepository leaseRepository;
+    private final TimerPartitions partitions;
+    private final TimerService timerService;
+    private final AttemptExpirySweeper sweeper;
+    private final QuizAppProperties.Cluster cluster;
+    private final String nodeId;
+
+    private boolean partitionsCreated;
+    private LocalDateTime lastCatchUp = LocalDateTime.now();
+
+    public TimerPartitionManager(ClusterNodeRepository nodeRepository,
+                                 TimerPartitionLeaseRepository leaseRepository,
+                                 TimerPartitions partitions,
+                                 TimerService timerService,
+                                 AttemptExpirySweeper sweeper,
+                                 QuizAppProperties properties) {
+        this.nodeRepository = nodeRepository;
+        this.leaseRepository = leaseRepository;
+        this.partitions = partitions;
+        this.timerService = timerService;
+        this.sweeper = sweeper;
+        this.cluster = properties.getCluster();
+        this.nodeId = cluster.getNodeId() != null ? cluster.getNodeId() : defaultNodeId();
+    }
+
+    @Scheduled(fixedDelayString = "${quiz.cluster.heartbeat-interval:5000}")
+    public void rebalance() {
+        if (!cluster.getEnabled()) {
+            return;
+        }
+
+        try {
+            if (!partitionsCreated) {
+                leaseRepository.createPartitions(partitions.count());
+                partitionsCreated = true;
+            }
+            nodeRepository.heartbeat(nodeId);
+
+            List<String> liveNodes = nodeRepository.findLiveNodeIds(cluster.getLeaseTtl());
+            BitSet desired = PartitionRing.assign(liveNodes, nodeId,
+                    partitions.count(), cluster.getVirtualNodes());
+
+            // Give up what moved to another node before taking anything new
+            BitSet held = partitions.owned();
+            BitSet lost = (BitSet) held.clone();
+            lost.andNot(desired);
+            if (!lost.isEmpty()) {
+                held.andNot(lost);
+                partitions.update(held);
+                timerService.dropTimers(lost);
+                leaseRepository.releaseLeases(nodeId, lost.stream().boxed().toList());
+            }
+
+            BitSet owned = new BitSet(partitions.count());
+            if (!desired.isEmpty()) {
+                leaseRepository.acquireLeases(nodeId, desired.stream().boxed().toList(),
+                        cluster.getLeaseTtl()).forEach(owned::set);
+            }
+
+            // A lease that could not be renewed has been taken over by another node
+            BitSet revoked = (BitSet) held.clone();
+            revoked.andNot(owned);
+            BitSet gained = (BitSet) owned.clone();
+            gained.andNot(held);
+
+            partitions.update(owned);
+            if (!revoked.isEmpty()) {
+                timerService.dropTimers(revoked);
+            }
+            if (!lost.isEmpty() || !revoked.isEmpty() || !gained.isEmpty()) {
+                log.info("Node {} owns {} of {} timer partitions ({} live nodes)",
+                        nodeId, owned.cardinality(), partitions.count(), liveNodes.size());
+            }
+
+            restoreTimers(owned, gained);
+            nodeRepository.deleteDeadNodes(cluster.getLeaseTtl() * 4);
+        } catch (Exception e) {
+            log.error("Error rebalancing timer partitions", e);
+        }
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (!cluster.getEnabled()) {
+            return;
+        }
+
+        // Hand the partitions over now instead of after the lease TTL
+        partitions.update(new BitSet());
+        try {
+            leaseRepository.releaseAllLeases(nodeId);
+            nodeRepository.deleteById(nodeId);
+        } catch (Exception e) {
+            log.warn("Could not release timer partitions of node {}", nodeId, e);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    private void restoreTimers(BitSet owned, BitSet gained) {
+        LocalDateTime now = LocalDateTime.now();
+
+        // Newly owned partitions are loaded in full
+        if (!gained.isEmpty()) {
+            int restored = sweeper.restoreTimers(toIds(gained), EPOCH);
+            log.info("Restored {} attempt timers for {} acquired partitions",
+                    restored, gained.cardinality());
+        }
+
+        // Attempts started on other nodes since the last pass; the overlap covers clock
+        // skew between nodes and transactions that committed late
+        BitSet kept = (BitSet) owned.clone();
+        kept.andNot(gained);
+        if (!kept.isEmpty()) {
+            sweeper.restoreTimers(toIds(kept), lastCatchUp.minusNanos(cluster.getLeaseTtl() * 1_000_000));
+        }
+        lastCatchUp = now;
+    }
+
+    private static List<Long> toIds(BitSet partitionIds) {
+        return partitionIds.stream().mapToLong(p -> p).boxed().toList();
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+}
@@ -0,0 +1,47 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+
+/**
+ * Which attempt timers this node is responsible for. Attempts are split into a fixed
+ * number of partitions by id; in a cluster each partition is owned by one node at a time
+ * (see {@link TimerPartitionManager}), on a single node everything is owned locally.
+ */
+@Component
+public class TimerPartitions {
+
+    private final int count;
+    private volatile BitSet owned;
+
+    public TimerPartitions(QuizAppProperties properties) {
+        QuizAppProperties.Cluster cluster = properties.getCluster();
+        this.count = cluster.getEnabled() ? cluster.getPartitions() : 1;
+        this.owned = new BitSet(count);
+        if (!cluster.getEnabled()) {
+            owned.set(0);
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int partitionOf(long attemptId) {
+        return (int) Math.floorMod(attemptId, (long) count);
+    }
+
+    public boolean owns(long attemptId) {
+        return owned.get(partitionOf(attemptId));
+    }
+
+    BitSet owned() {
+        return (BitSet) owned.clone();
+    }
+
+    void update(BitSet partitions) {
+        owned = (BitSet) partitions.clone();
+    }
+}
@@ -1,69 +1,166 @@
 package app.quiz.glass.services;
 
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.config.TimerFrameCodec;
 import app.quiz.glass.dto.timer.TimerUpdateDTO;
 import app.quiz.glass.entities.AttemptExpiredEvent;
+import app.quiz.glass.repositories.QuizAttemptRepository;
+import app.quiz.glass.repositories.projections.AttemptDeadline;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.time.ZoneId;
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.stream.LongStream;
 
+/**
+ * Server side of the attempt countdown. Clients count down locally from the anchor
+ * frame they get on subscribe ({@code expiresAt} + {@code serverTime}); the server only
+ * sends a drift correction every {@code quiz.timer.sync-interval} (more often during the
+ * final phase) and one final frame when the attempt expires.
+ * <p>
+ * Frames go to the attempt owner's {@value #ATTEMPT_QUEUE} user destination, so each
+ * user has one subscription per session and nobody can listen in on other attempts.
+ */
 @Service
 @EnableAsync
 @RequiredArgsConstructor
 public class TimerService {
 
+    static final long TICK_MS = 1000;
+    static final String ATTEMPT_QUEUE = "/queue/attempt";
+
     private final ApplicationEventPublisher eventPublisher;
     private final SimpMessagingTemplate messagingTemplate;
+    private final TimerFrameCodec frameCodec;
+    private final QuizAppProperties properties;
+    private final TimerPartitions partitions;
+    private final QuizAttemptRepository attemptRepository;
+
+    private final TimingWheel timers = new TimingWheel(TICK_MS, System.currentTimeMillis(), this::nextSyncMs);
+
+    /**
+     * Schedules the attempt's timer if this node owns its partition; otherwise the owning
+     * node picks the attempt up from the database on its next rebalance.
+     */
+    public void startTimer(long attemptId, long expiresAtMs, String userName) {
+        if (!partitions.owns(attemptId)) {
+            return;
+        }
+        long nowMs = System.currentTimeMillis();
+        timers.schedule(attemptId, expiresAtMs, nextSyncMs(nowMs, expiresAtMs), userName);
+    }
+
+    public void stopTimer(long attemptId) {
+        timers.cancel(attemptId);
+    }
+
+    /**
+     * Ends a timer that was finalized outside the tick, e.g. by a quiz close-out, and
+     * sends the final frame.
+     */
+    public void expireTimer(long attemptId, String userName) {
+        timers.cancel(attemptId);
+        long nowMs = System.currentTimeMillis();
+        sendToUser(userName, timerFrame(attemptId, nowMs, nowMs));
+    }
+
+    /**
+     * Drops the timers of partitions this node no longer owns; returns how many.
+     */
+    int dropTimers(BitSet lostPartitions) {
+        return timers.cancelIf(attemptId -> lostPartitions.get(partitions.partitionOf(attemptId)));
+    }
+
+    public int activeTimerCount() {
+        return timers.size();
+    }
 
-    private final Map<Long, LocalDateTime> activeTimers = new ConcurrentHashMap<>();
+    /**
+     * Anchor frame sent once when a client subscribes. Timers owned by another node are
+     * looked up in the database; attempts that are no longer running are reported as
+     * expired.
+     */
+    public TimerUpdateDTO anchorFrame(long attemptId, String userName) {
+        long nowMs = System.currentTimeMillis();
+        long expiresAtMs = timers.expiresAt(attemptId);
+        String owner = timers.userName(attemptId);
 
-    public void startTimer(Long attemptId, LocalDateTime expiryTime) {
-        activeTimers.put(attemptId, expiryTime);
+        if (expiresAtMs < 0) {
+            Optional<AttemptDeadline> deadline = attemptRepository.findActiveDeadline(attemptId);
+            expiresAtMs = deadline.map(d -> toEpochMillis(d.getExpiresAt())).orElse(nowMs);
+            owner = deadline.map(AttemptDeadline::getUserName).orElse(userName);
+        }
+        if (!userName.equals(owner)) {
+            throw new RuntimeException("Attempt not found");
+        }
+        return timerFrame(attemptId, Math.max(expiresAtMs, nowMs), nowMs);
     }
 
-    public void stopTimer(Long attemptId) {
-        activeTimers.remove(attemptId);
+    public static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 
-    @Scheduled(fixedDelay = 1000)
+    @Scheduled(fixedRate = TICK_MS)
     public void broadcastTimerUpdates() {
-        LocalDateTime now = LocalDateTime.now();
-
-        activeTimers.forEach((attemptId, expiryTime) -> {
-            long remaining = Duration.between(now, expiryTime).getSeconds();
-
-            if (remaining <= 0) {
-                stopTimer(attemptId);
-
-                // ✔ Publish event (NO dependency on QuizAttemptService)
-                eventPublisher.publishEvent(new AttemptExpiredEvent(attemptId));
-
-                // WebSocket notify
-                messagingTemplate.convertAndSend("/topic/timer/" + attemptId,
-                        TimerUpdateDTO.builder()
-                                .attemptId(attemptId)
-                                .remainingSeconds(0L)
-                                .expired(true)
-                                .serverTime(now)
-                                .build());
-
-            } else {
-                messagingTemplate.convertAndSend("/topic/timer/" + attemptId,
-                        TimerUpdateDTO.builder()
-                                .attemptId(attemptId)
-                                .remainingSeconds(remaining)
-                                .serverTime(now)
-                                .build());
+        long nowMs = System.currentTimeMillis();
+        LongStream.Builder expired = LongStream.builder();
+
+        // Only timers due for a resync or expiring in this tick are visited
+        timers.advance(nowMs, (attemptId, expiresAtMs, userName) -> {
+            if (expiresAtMs <= nowMs) {
+                expired.add(attemptId);
             }
+
+            // WebSocket notify
+            sendToUser(userName, timerFrame(attemptId, expiresAtMs, nowMs));
         });
+
+        long[] expiredIds = expired.build().toArray();
+        if (expiredIds.length > 0) {
+            // ✔ Publish event (NO dependency on QuizAttemptService); finalizing happens off this thread
+            eventPublisher.publishEvent(new AttemptExpiredEvent(expiredIds));
+        }
+    }
+
+    private void sendToUser(String userName, TimerUpdateDTO frame) {
+        if (userName == null) {
+            return;
+        }
+        // Same destination convertAndSendToUser builds, but the frame is already encoded
+        messagingTemplate.send(messagingTemplate.getUserDestinationPrefix()
+                + userName.replace("/", "%2F") + ATTEMPT_QUEUE, frameCodec.encode(frame));
+    }
+
+    private long nextSyncMs(long nowMs, long expiresAtMs) {
+        QuizAppProperties.Timer timer = properties.getTimer();
+        long remainingMs = expiresAtMs - nowMs;
+        long interval = remainingMs <= timer.getFinalPhase()
+                ? timer.getFinalSyncInterval()
+                : timer.getSyncInterval();
+
+        // Land the last resync of the normal phase on the start of the final phase
+        long next = nowMs + interval;
+        if (remainingMs > timer.getFinalPhase()) {
+            next = Math.min(next, expiresAtMs - timer.getFinalPhase());
+        }
+        return Math.min(next, expiresAtMs);
+    }
+
+    private static TimerUpdateDTO timerFrame(long attemptId, long expiresAtMs, long nowMs) {
+        long remainingMs = Math.max(0, expiresAtMs - nowMs);
+        return TimerUpdateDTO.builder()
+                .attemptId(attemptId)
+                .expiresAt(expiresAtMs)
+                .serverTime(nowMs)
+                .remainingSeconds(remainingMs / 1000)
+                .expired(remainingMs == 0)
+                .build();
     }
 }
@@ -0,0 +1,334 @@
+package app.quiz.glass.services;
+
+import java.util.Arrays;
+import java.util.function.LongPredicate;
+
+/**
+ * Hierarchical hashed timing wheel keyed by primitive attempt ids.
+ * <p>
+ * Four levels of 64 slots each; level 0 slots are one tick wide, each higher level
+ * covers 64x the span of the one below. Schedule and cancel are O(1); advancing the
+ * wheel only visits the level 0 slot that is due, plus an occasional cascade of one
+ * higher-level slot every 64 ticks. Deadlines beyond the horizon (2^24 ticks) are
+ * parked in the top level and re-placed each time they cascade.
+ * <p>
+ * Each timer carries the attempt's expiry and owning user, and fires at wake-ups chosen by a
+ * {@link WakePolicy}: a wake-up before expiry re-arms the timer for the next wake-up,
+ * the wake-up at expiry removes it.
+ * <p>
+ * Not lock-free: every public method synchronizes on the wheel, and visitors passed to
+ * {@link #advance} run after the lock has been released.
+ */
+final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final long tickMs;
+    private final WakePolicy wakePolicy;
+    private final Node[] slots = new Node[LEVELS * SLOTS];
+    private final NodeIndex index = new NodeIndex();
+
+    // Next tick to be processed; tick t covers [t * tickMs, (t + 1) * tickMs)
+    private long nextTick;
+
+    TimingWheel(long tickMs, long startMs, WakePolicy wakePolicy) {
+        this.tickMs = tickMs;
+        this.wakePolicy = wakePolicy;
+        this.nextTick = Math.floorDiv(startMs, tickMs);
+    }
+
+    synchronized void schedule(long attemptId, long expiresAtMs, long wakeAtMs, String userName) {
+        Node node = index.get(attemptId);
+        if (node != null) {
+            unlink(node);
+        } else {
+            node = new Node(attemptId);
+            index.put(attemptId, node);
+        }
+        node.expiresAtMs = expiresAtMs;
+        node.userName = userName;
+        arm(node, Math.min(wakeAtMs, expiresAtMs));
+    }
+
+    synchronized boolean cancel(long attemptId) {
+        Node node = index.remove(attemptId);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    /**
+     * Cancels every timer whose attempt id matches the filter; returns how many.
+     */
+    synchronized int cancelIf(LongPredicate filter) {
+        long[] ids = index.keys(filter);
+        for (long attemptId : ids) {
+            cancel(attemptId);
+        }
+        return ids.length;
+    }
+
+    synchronized int size() {
+        return index.size;
+    }
+
+    /**
+     * Returns the expiry of a scheduled timer, or -1 when the attempt has no timer.
+     */
+    synchronized long expiresAt(long attemptId) {
+        Node node = index.get(attemptId);
+        return node != null ? node.expiresAtMs : -1;
+    }
+
+    /**
+     * Returns the user a scheduled timer belongs to, or null when the attempt has no timer.
+     */
+    synchronized String userName(long attemptId) {
+        Node node = index.get(attemptId);
+        return node != null ? node.userName : null;
+    }
+
+    /**
+     * Advances the wheel up to {@code nowMs} and hands every timer that woke up to the
+     * visitor, outside the lock. Timers that have not expired yet are re-armed at their
+     * next wake-up; expired ones are removed, so the visitor sees them exactly once with
+     * {@code expiresAtMs <= nowMs}.
+     */
+    void advance(long nowMs, TimerVisitor visitor) {
+        long[] woken;
+        String[] users;
+        int count = 0;
+
+        synchronized (this) {
+            long targetTick = Math.floorDiv(nowMs, tickMs);
+            woken = new long[0];
+            users = new String[0];
+
+            while (nextTick <= targetTick) {
+                int idx = (int) (nextTick & SLOT_MASK);
+                if (idx == 0) {
+                    cascade();
+                }
+
+                Node node = slots[idx];
+                slots[idx] = null;
+                while (node != null) {
+                    Node next = node.next;
+                    node.prev = null;
+                    node.next = null;
+                    if (count + 2 > woken.length) {
+                        woken = Arrays.copyOf(woken, Math.max(32, woken.length * 2));
+                        users = Arrays.copyOf(users, woken.length / 2);
+                    }
+                    users[count / 2] = node.userName;
+                    woken[count++] = node.attemptId;
+                    woken[count++] = node.expiresAtMs;
+
+                    if (node.expiresAtMs <= nowMs) {
+                        index.remove(node.attemptId);
+                    } else {
+                        // Never re-arm into the slot being drained
+                        arm(node, Math.max(wakePolicy.nextWakeMs(nowMs, node.expiresAtMs),
+                                (nextTick + 1) * tickMs));
+                    }
+                    node = next;
+                }
+                nextTick++;
+            }
+        }
+
+        for (int i = 0; i < count; i += 2) {
+            visitor.visit(woken[i], woken[i + 1], users[i / 2]);
+        }
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            int idx = (int) ((nextTick >> (level * SLOT_BITS)) & SLOT_MASK);
+            int slot = level * SLOTS + idx;
+
+            Node node = slots[slot];
+            slots[slot] = null;
+            while (node != null) {
+                Node next = node.next;
+                node.prev = null;
+                node.next = null;
+                link(node);
+                node = next;
+            }
+
+            if (idx != 0) {
+                return;
+            }
+        }
+    }
+
+    private void arm(Node node, long wakeAtMs) {
+        node.expireTick = Math.max(ceilDiv(Math.min(wakeAtMs, node.expiresAtMs), tickMs), nextTick);
+        link(node);
+    }
+
+    private void link(Node node) {
+        long delta = Math.min(node.expireTick - nextTick, MAX_DELTA);
+        long tick = nextTick + delta;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << ((level + 1) * SLOT_BITS))) {
+            level++;
+        }
+
+        int slot = level * SLOTS + (int) ((tick >> (level * SLOT_BITS)) & SLOT_MASK);
+        Node head = slots[slot];
+        node.slot = slot;
+        node.prev = null;
+        node.next = head;
+        if (head != null) {
+            head.prev = node;
+        }
+        slots[slot] = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else if (slots[node.slot] == node) {
+            slots[node.slot] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static long ceilDiv(long value, long divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+
+    @FunctionalInterface
+    interface TimerVisitor {
+        void visit(long attemptId, long expiresAtMs, String userName);
+    }
+
+    @FunctionalInterface
+    interface WakePolicy {
+        long nextWakeMs(long nowMs, long expiresAtMs);
+    }
+
+    private static final class Node {
+        private final long attemptId;
+        private long expiresAtMs;
+        private String userName;
+        private long expireTick;
+        private int slot;
+        private Node prev;
+        private Node next;
+
+        private Node(long attemptId) {
+            this.attemptId = attemptId;
+        }
+    }
+
+    /**
+     * Open-addressing long -> node map with linear probing, so the hot path never
+     * boxes attempt ids.
+     */
+    private static final class NodeIndex {
+        private long[] keys = new long[64];
+        private Node[] values = new Node[64];
+        private int size;
+
+        Node get(long key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(long key, Node value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        Node remove(long key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (values[i] != null && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            Node removed = values[i];
+            if (removed == null) {
+                return null;
+            }
+
+            // Backward-shift deletion keeps probe chains intact without tombstones
+            values[i] = null;
+            size--;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (values[j] == null) {
+                    return removed;
+                }
+                int home = hash(keys[j]) & mask;
+                boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+                if (!between) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = null;
+                    i = j;
+                }
+            }
+        }
+
+        long[] keys(LongPredicate filter) {
+            long[] matched = new long[size];
+            int count = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] != null && filter.test(keys[i])) {
+                    matched[count++] = keys[i];
+                }
+            }
+            return Arrays.copyOf(matched, count);
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            Node[] oldValues = values;
+            keys = new long[capacity];
+            values = new Node[capacity];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package app.quiz.glass.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class OutboundFrameCoalescerTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OutboundFrameCoalescer coalescer =
+            new OutboundFrameCoalescer(new QuizAppProperties(), meterRegistry);
+    private final MessageHandler handler = message -> { };
+
+    @Test
+    void keepsOnlyTheNewestTimerFrameWhileTheSessionIsCongested() throws Exception {
+        CountDownLatch sendStarted = new CountDownLatch(1);
+        CountDownLatch releaseSend = new CountDownLatch(1);
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        doAnswer(invocation -> {
+            sendStarted.countDown();
+            releaseSend.await();
+            return null;
+        }).when(session).sendMessage(any());
+
+        AtomicReference<WebSocketSession> tracked = new AtomicReference<>();
+        WebSocketHandler decorated = coalescer.decorate(new AbstractWebSocketHandler() {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession s) {
+                tracked.set(s);
+            }
+        });
+        decorated.afterConnectionEstablished(session);
+
+        List<Message<?>> resent = new ArrayList<>();
+        MessageChannel channel = (message, timeout) -> resent.add(message);
+
+        // Slow send in progress on another thread
+        Thread sender = new Thread(() -> {
+            try {
+                tracked.get().sendMessage(new TextMessage("slow"));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        sender.start();
+        sendStarted.await();
+
+        assertThat(coalescer.beforeHandle(frame("s1", "/queue/attempt-users1", "60"), channel, handler)).isNull();
+        assertThat(coalescer.beforeHandle(frame("s1", "/queue/attempt-users1", "59"), channel, handler)).isNull();
+        Message<?> other = frame("s1", "/queue/other", "x");
+        assertThat(coalescer.beforeHandle(other, channel, handler)).isSameAs(other);
+
+        releaseSend.countDown();
+        sender.join();
+
+        assertThat(resent).hasSize(1);
+        assertThat(resent.get(0).getPayload()).isEqualTo("59".getBytes());
+        assertThat(meterRegistry.counter("glass.websocket.frames.coalesced").count()).isEqualTo(1);
+
+        decorated.afterConnectionClosed(session, CloseStatus.NORMAL);
+    }
+
+    @Test
+    void passesFramesThroughWhenTheSessionIsIdle() throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s2");
+        coalescer.decorate(new AbstractWebSocketHandler() { }).afterConnectionEstablished(session);
+
+        Message<?> message = frame("s2", "/queue/attempt-users2", "30");
+        assertThat(coalescer.beforeHandle(message, (m, t) -> true, handler)).isSameAs(message);
+    }
+
+    private static Message<byte[]> frame(String sessionId, String destination, String body) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(body.getBytes(), accessor.getMessageHeaders());
+    }
+}
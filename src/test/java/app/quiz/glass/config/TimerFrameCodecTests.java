@@ -0,0 +1,81 @@
+package app.quiz.glass.config;
+
+import app.quiz.glass.dto.timer.TimerUpdateDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimerFrameCodecTests {
+
+    private final TimerFrameCodec codec = new TimerFrameCodec(new ObjectMapper());
+    private final MessageChannel channel = (message, timeout) -> true;
+
+    private final TimerUpdateDTO update = TimerUpdateDTO.builder()
+            .attemptId(42L).expiresAt(1_060_000L).serverTime(1_000_000L).remainingSeconds(60L).expired(false)
+            .build();
+
+    @Test
+    void jsonSessionsGetTheRegularFrameWithoutTheCompactHeader() {
+        Message<?> sent = codec.preSend(forSession(codec.encode(update), "json"), channel);
+
+        assertThat(new String((byte[]) sent.getPayload()))
+                .isEqualTo("{\"attemptId\":42,\"expiresAt\":1060000,\"serverTime\":1000000," +
+                        "\"remainingSeconds\":60,\"expired\":false}");
+        assertThat(SimpMessageHeaderAccessor.wrap(sent).getFirstNativeHeader("timer-compact")).isNull();
+    }
+
+    @Test
+    void compactSessionsGetTheNumericArray() {
+        StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+        connect.setSessionId("compact");
+        connect.setNativeHeader(TimerFrameCodec.ENCODING_HEADER, TimerFrameCodec.COMPACT);
+        codec.inbound().preSend(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()), channel);
+
+        Message<?> sent = codec.preSend(forSession(codec.encode(update), "compact"), channel);
+
+        assertThat(codec.isCompact("compact")).isTrue();
+        assertThat(new String((byte[]) sent.getPayload())).isEqualTo("[42,1000000,60000,1060000,0]");
+    }
+
+    @Test
+    void clientFramesCannotCarryTheCompactHeader() {
+        StompHeaderAccessor send = StompHeaderAccessor.create(StompCommand.SEND);
+        send.setSessionId("client");
+        send.setDestination("/topic/anything");
+        send.setNativeHeader(TimerFrameCodec.COMPACT_HEADER, "not a timer frame");
+        byte[] body = "hello".getBytes();
+
+        Message<?> received = codec.inbound().preSend(MessageBuilder.createMessage(body, send.getMessageHeaders()), channel);
+
+        assertThat(received.getPayload()).isEqualTo(body);
+        assertThat(SimpMessageHeaderAccessor.wrap(received).getFirstNativeHeader(TimerFrameCodec.COMPACT_HEADER)).isNull();
+    }
+
+    @Test
+    void malformedCompactHeaderIsDroppedNotSent() {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("compact");
+        accessor.setNativeHeader(TimerFrameCodec.COMPACT_HEADER, "oops");
+        byte[] body = "{}".getBytes();
+
+        Message<?> sent = codec.preSend(MessageBuilder.createMessage(body, accessor.getMessageHeaders()), channel);
+
+        assertThat(sent.getPayload()).isEqualTo(body);
+        assertThat(SimpMessageHeaderAccessor.wrap(sent).getFirstNativeHeader(TimerFrameCodec.COMPACT_HEADER)).isNull();
+    }
+
+    private static Message<byte[]> forSession(Message<byte[]> message, String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination("/queue/attempt-userjson");
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,225 @@
+package app.quiz.glass.config;
+
+import app.quiz.glass.dto.timer.TimerUpdateDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import java.net.ServerSocket;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs two application "nodes" in relay mode against one embedded STOMP broker and
+ * checks that a frame produced on one node reaches a client session held by the other.
+ */
+class WebSocketBrokerRelayTests {
+
+    private static EmbeddedActiveMQ broker;
+    private static int brokerPort;
+
+    @BeforeAll
+    static void startBroker() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            brokerPort = socket.getLocalPort();
+        }
+
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        configuration.addAcceptorConfiguration("stomp",
+                "tcp://127.0.0.1:" + brokerPort + "?protocols=STOMP");
+
+        broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        broker.start();
+    }
+
+    @AfterAll
+    static void stopBroker() throws Exception {
+        broker.stop();
+    }
+
+    @Test
+    void simpleBrokerIsTheDefault() {
+        try (ConfigurableApplicationContext node = startNode("simple")) {
+            assertThat(node.getBeansOfType(SimpleBrokerMessageHandler.class)).hasSize(1);
+            assertThat(node.getBeansOfType(StompBrokerRelayMessageHandler.class)).isEmpty();
+        }
+    }
+
+    @Test
+    void relayFansOutAcrossNodes() throws Exception {
+        try (ConfigurableApplicationContext nodeA = startNode("relay");
+             ConfigurableApplicationContext nodeB = startNode("relay")) {
+
+            awaitBrokerAvailable(nodeA);
+            awaitBrokerAvailable(nodeB);
+
+            BlockingQueue<Message<?>> clientFrames = new LinkedBlockingQueue<>();
+            nodeB.getBean("clientOutboundChannel", AbstractSubscribableChannel.class)
+                    .subscribe(clientFrames::add);
+
+            MessageChannel inbound = nodeB.getBean("clientInboundChannel", MessageChannel.class);
+            inbound.send(stompFrame(StompCommand.CONNECT, accessor -> {
+                accessor.setAcceptVersion("1.2");
+                accessor.setHeartbeat(0, 0);
+            }));
+            assertThat(nextFrame(clientFrames, StompCommand.CONNECTED)).isNotNull();
+
+            inbound.send(stompFrame(StompCommand.SUBSCRIBE, accessor -> {
+                accessor.setSubscriptionId("sub-0");
+                accessor.setDestination("/topic/timer/42");
+                accessor.setReceipt("subscribed");
+            }));
+            assertThat(nextFrame(clientFrames, StompCommand.RECEIPT)).isNotNull();
+
+            nodeA.getBean(SimpMessagingTemplate.class)
+                    .convertAndSend("/topic/timer/42", Map.of("attemptId", 42, "expired", true));
+
+            Message<?> frame = nextFrame(clientFrames, StompCommand.MESSAGE);
+            assertThat(frame).isNotNull();
+            assertThat(StompHeaderAccessor.wrap(frame).getDestination()).isEqualTo("/topic/timer/42");
+            assertThat(new String((byte[]) frame.getPayload())).contains("\"attemptId\":42");
+
+            inbound.send(stompFrame(StompCommand.DISCONNECT, accessor -> {
+            }));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void compactUserFramesReachSessionsOnOtherNodes() throws Exception {
+        try (ConfigurableApplicationContext nodeA = startNode("relay");
+             ConfigurableApplicationContext nodeB = startNode("relay")) {
+
+            awaitBrokerAvailable(nodeA);
+            awaitBrokerAvailable(nodeB);
+
+            BlockingQueue<Message<?>> clientFrames = new LinkedBlockingQueue<>();
+            nodeB.getBean("clientOutboundChannel", AbstractSubscribableChannel.class)
+                    .subscribe(clientFrames::add);
+
+            MessageChannel inbound = nodeB.getBean("clientInboundChannel", MessageChannel.class);
+            inbound.send(stompFrame(StompCommand.CONNECT, accessor -> {
+                accessor.setAcceptVersion("1.2");
+                accessor.setHeartbeat(0, 0);
+                accessor.setNativeHeader(TimerFrameCodec.ENCODING_HEADER, TimerFrameCodec.COMPACT);
+                accessor.setUser(() -> "alice@example.com");
+            }));
+            Message<?> connected = nextFrame(clientFrames, StompCommand.CONNECTED);
+            assertThat(connected).isNotNull();
+            // Normally published by the WebSocket handler; registers the session with the user registry
+            nodeB.publishEvent(new SessionConnectedEvent(this, (Message<byte[]>) connected, () -> "alice@example.com"));
+
+            inbound.send(stompFrame(StompCommand.SUBSCRIBE, accessor -> {
+                accessor.setSubscriptionId("sub-0");
+                accessor.setDestination("/user/queue/attempt");
+                accessor.setUser(() -> "alice@example.com");
+                accessor.setReceipt("subscribed");
+            }));
+            assertThat(nextFrame(clientFrames, StompCommand.RECEIPT)).isNotNull();
+
+            TimerUpdateDTO update = TimerUpdateDTO.builder()
+                    .attemptId(7L).expiresAt(61_000L).serverTime(1_000L).remainingSeconds(60L).expired(false)
+                    .build();
+            // Node B subscribes to unresolved user destinations only after its relay session is
+            // up, so a send that races that subscription is dropped; retry until it lands
+            Message<?> frame = null;
+            for (int i = 0; i < 10 && frame == null; i++) {
+                nodeA.getBean(SimpMessagingTemplate.class)
+                        .send("/user/alice@example.com/queue/attempt",
+                                nodeA.getBean(TimerFrameCodec.class).encode(update));
+                frame = nextFrame(clientFrames, StompCommand.MESSAGE, 1_000);
+            }
+            assertThat(frame).isNotNull();
+            assertThat(new String((byte[]) frame.getPayload())).isEqualTo("[7,1000,60000,61000,0]");
+            assertThat(StompHeaderAccessor.wrap(frame).getDestination()).startsWith("/queue/attempt-user");
+            assertThat(StompHeaderAccessor.wrap(frame).getFirstNativeHeader("timer-compact")).isNull();
+
+            inbound.send(stompFrame(StompCommand.DISCONNECT, accessor -> {
+            }));
+        }
+    }
+
+    private static ConfigurableApplicationContext startNode(String mode) {
+        return new SpringApplicationBuilder(BrokerTestConfig.class)
+                .web(WebApplicationType.NONE)
+                .run("--quiz.websocket.broker.mode=" + mode,
+                        "--quiz.websocket.broker.relay-host=127.0.0.1",
+                        "--quiz.websocket.broker.relay-port=" + brokerPort);
+    }
+
+    private static void awaitBrokerAvailable(ConfigurableApplicationContext node) throws InterruptedException {
+        StompBrokerRelayMessageHandler relay = node.getBean(StompBrokerRelayMessageHandler.class);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!relay.isBrokerAvailable() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(relay.isBrokerAvailable()).isTrue();
+    }
+
+    private static Message<byte[]> stompFrame(StompCommand command,
+                                              Consumer<StompHeaderAccessor> headers) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setSessionId("client-session");
+        headers.accept(accessor);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<?> nextFrame(BlockingQueue<Message<?>> frames, StompCommand command)
+            throws InterruptedException {
+        return nextFrame(frames, command, 10_000);
+    }
+
+    private static Message<?> nextFrame(BlockingQueue<Message<?>> frames, StompCommand command, long timeoutMs)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (System.currentTimeMillis() < deadline) {
+            Message<?> frame = frames.poll(100, TimeUnit.MILLISECONDS);
+            if (frame != null && StompHeaderAccessor.wrap(frame).getCommand() == command) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    @Configuration
+    @EnableConfigurationProperties
+    @Import({QuizAppProperties.class, WebSocketConfig.class, OutboundFrameCoalescer.class,
+            TimerFrameCodec.class, JacksonAutoConfiguration.class})
+    static class BrokerTestConfig {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.dto.answer.SubmitAnswerRequest;
+import app.quiz.glass.entities.Answer;
+import app.quiz.glass.entities.Question;
+import app.quiz.glass.entities.QuestionOption;
+import app.quiz.glass.entities.QuestionType;
+import app.quiz.glass.entities.Quiz;
+import app.quiz.glass.entities.QuizAttempt;
+import app.quiz.glass.entities.User;
+import app.quiz.glass.entities.UserRole;
+import app.quiz.glass.repositories.AnswerRepository;
+import app.quiz.glass.repositories.QuestionRepository;
+import app.quiz.glass.repositories.QuizAttemptRepository;
+import app.quiz.glass.repositories.QuizRepository;
+import app.quiz.glass.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Answer buffers of two nodes saving answers of the same attempt against the database;
+ * the one in the context, on a single node, plays the node that finalizes.
+ */
+@SpringBootTest
+class AnswerBufferNodesTests {
+
+    @Autowired
+    private AnswerBuffer buffer;
+
+    @Autowired
+    private QuizAttemptService attemptService;
+
+    @Autowired
+    private AttemptStateCache attemptStateCache;
+
+    @Autowired
+    private QuizContentCache contentCache;
+
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AnswerIds answerIds;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private QuizRepository quizRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private QuizAttemptRepository attemptRepository;
+
+    @Autowired
+    private AnswerRepository answerRepository;
+
+    private AnswerBuffer otherNode;
+    private User user;
+    // One point for the first, two for the second; the first option of each is correct
+    private final List<Question> questions = new ArrayList<>();
+    private long attemptId;
+
+    @BeforeEach
+    void setUp() {
+        QuizAppProperties clustered = new QuizAppProperties();
+        clustered.getCluster().setEnabled(true);
+        otherNode = new AnswerBuffer(attemptStateCache, attemptRepository, contentCache, answerRepository,
+                jdbcTemplate, transactionTemplate, clustered, answerIds);
+
+        user = userRepository.save(User.builder()
+                .email(UUID.randomUUID() + "@nodes.test").password("x").fullName("Nodes")
+                .role(UserRole.STUDENT).enabled(true).createdAt(LocalDateTime.now())
+                .quizAttempts(new ArrayList<>())
+                .build());
+        Quiz quiz = quizRepository.save(Quiz.builder()
+                .title("Nodes").durationMinutes(30)
+                .startTime(LocalDateTime.now().minusHours(1)).endTime(LocalDateTime.now().plusHours(1))
+                .published(true).shuffleQuestions(false).shuffleOptions(false).passingScore(50)
+                .createdAt(LocalDateTime.now()).questions(new ArrayList<>())
+                .build());
+        for (int i = 0; i < 2; i++) {
+            Question question = Question.builder()
+                    .quiz(quiz).type(QuestionType.MCQ).questionText("q" + i).points(i + 1).orderIndex(i)
+                    .options(new ArrayList<>()).answers(new ArrayList<>())
+                    .build();
+            for (int o = 0; o < 2; o++) {
+                question.getOptions().add(QuestionOption.builder()
+                        .question(question).optionText("o" + o).isCorrect(o == 0).orderIndex(o)
+                        .build());
+            }
+            questions.add(questionRepository.save(question));
+        }
+        attemptId = attemptService.startQuiz(quiz.getId(), user.getId(), user.getEmail()).getAttemptId();
+    }
+
+    @Test
+    void answersSavedOnTwoNodesAddUpInTheFinalScore() {
+        // Buffered on the finalizing node, which never learns of the other node's answers
+        buffer.record(answer(1, true), user.getId());
+        otherNode.record(answer(0, false), user.getId());
+        otherNode.record(answer(0, true), user.getId());
+
+        attemptService.submitQuiz(attemptId, user.getId());
+
+        QuizAttempt attempt = attemptRepository.findById(attemptId).orElseThrow();
+        assertThat(attempt.getScore()).isEqualTo(3);
+        assertThat(attempt.getTotalPoints()).isEqualTo(3);
+        assertThat(attempt.getAnsweredCount()).isEqualTo(2);
+        assertThat(answerRepository.findByAttemptId(attemptId))
+                .extracting(Answer::getPointsEarned).containsExactlyInAnyOrder(1, 2);
+    }
+
+    @Test
+    void aNodeReplacingAnotherNodesAnswerMovesTheScoreByTheDifference() {
+        otherNode.record(answer(1, true), user.getId());
+        buffer.record(answer(1, false), user.getId());
+        buffer.record(answer(0, true), user.getId());
+
+        attemptService.submitQuiz(attemptId, user.getId());
+
+        QuizAttempt attempt = attemptRepository.findById(attemptId).orElseThrow();
+        assertThat(attempt.getScore()).isEqualTo(1);
+        assertThat(attempt.getTotalPoints()).isEqualTo(3);
+        assertThat(attempt.getAnsweredCount()).isEqualTo(2);
+    }
+
+    @Test
+    void aSubmitOnAnotherNodeKeepsTheAnswersAlreadyConfirmed() {
+        assertThat(otherNode.record(answer(0, true), user.getId()).getSaved()).isTrue();
+        assertThat(otherNode.record(answer(1, true), user.getId()).getSaved()).isTrue();
+
+        // Acknowledged on a clustered node; the finalizing node holds nothing of this attempt
+        attemptService.submitQuiz(attemptId, user.getId());
+
+        QuizAttempt attempt = attemptRepository.findById(attemptId).orElseThrow();
+        assertThat(attempt.getScore()).isEqualTo(3);
+        assertThat(answerRepository.findByAttemptId(attemptId)).hasSize(2);
+
+        // Too late: refused, not confirmed
+        assertThatThrownBy(() -> otherNode.record(answer(1, false), user.getId()))
+                .hasMessage("Attempt is not in progress");
+        assertThat(answerRepository.findByAttemptId(attemptId))
+                .extracting(Answer::getPointsEarned).containsExactlyInAnyOrder(1, 2);
+    }
+
+    private SubmitAnswerRequest answer(int question, boolean correct) {
+        Question saved = questions.get(question);
+        SubmitAnswerRequest request = new SubmitAnswerRequest();
+        request.setAttemptId(attemptId);
+        request.setQuestionId(saved.getId());
+        request.setSelectedOptionId(saved.getOptions().get(correct ? 0 : 1).getId());
+        return request;
+    }
+}
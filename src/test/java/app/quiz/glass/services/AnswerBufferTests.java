@@ -0,0 +1,238 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.dto.answer.SubmitAnswerRequest;
+import app.quiz.glass.dto.question.QuestionDTO;
+import app.quiz.glass.dto.question.QuestionOptionDTO;
+import app.quiz.glass.entities.AttemptStatus;
+import app.quiz.glass.entities.Question;
+import app.quiz.glass.entities.QuestionOption;
+import app.quiz.glass.entities.QuestionType;
+import app.quiz.glass.repositories.AnswerRepository;
+import app.quiz.glass.repositories.QuizAttemptRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AnswerBufferTests {
+
+    private static final long QUIZ = 7;
+    private static final long USER = 3;
+
+    private final AttemptStateCache attemptStateCache = mock(AttemptStateCache.class);
+    private final QuizAttemptRepository attemptRepository = mock(QuizAttemptRepository.class);
+    private final QuizContentCache contentCache = mock(QuizContentCache.class);
+    private final AnswerRepository answerRepository = mock(AnswerRepository.class);
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final AnswerIds answerIds = mock(AnswerIds.class);
+    private final QuizAppProperties properties = new QuizAppProperties();
+    private AnswerBuffer buffer;
+
+    // Two MCQ questions, 1 and 2 points; the first option of each is correct
+    private final List<Question> questions = List.of(question(10, 1), question(20, 2));
+
+    @BeforeEach
+    void setUp() {
+        QuizContentCache.QuizContent content = mock(QuizContentCache.QuizContent.class);
+        when(content.getAnswerKey()).thenReturn(AnswerKey.compile(questions));
+        when(content.getQuestions()).thenReturn(questions.stream().map(AnswerBufferTests::dto).toList());
+        when(contentCache.get(QUIZ)).thenReturn(content);
+        when(answerRepository.findSelectionsByAttemptId(anyLong())).thenReturn(List.of());
+        doAnswer(call -> call.<TransactionCallback<?>>getArgument(0).doInTransaction(null))
+                .when(transactionTemplate).execute(any());
+
+        // Every answer finds its attempt in progress unless a test says otherwise
+        when(jdbcTemplate.batchUpdate(eq(AnswerRepository.UPSERT_ANSWER), any(SqlParameterSource[].class)))
+                .thenAnswer(call -> filled(call.<SqlParameterSource[]>getArgument(1).length, 1));
+        when(answerRepository.upsertAnswer(anyLong(), anyLong(), anyInt(), anyLong(), any(), any(), anyBoolean(),
+                anyInt(), anyInt(), any(), any())).thenReturn(1);
+        when(attemptRepository.lockUnheldAttempts(anyCollection()))
+                .thenAnswer(call -> List.copyOf(call.<Collection<Long>>getArgument(0)));
+
+        buffer = new AnswerBuffer(attemptStateCache, attemptRepository, contentCache, answerRepository,
+                jdbcTemplate, transactionTemplate, properties, answerIds);
+    }
+
+    @Test
+    void buffersOnASingleNodeAndWritesOneBatch() {
+        inProgress(100);
+        inProgress(101);
+
+        buffer.record(answer(101, 10, 12L), USER);
+        buffer.record(answer(100, 10, 11L), USER);
+        buffer.record(answer(100, 10, 12L), USER);
+        assertThat(buffer.record(answer(100, 20, 21L), USER).getAnsweredCount()).isEqualTo(2);
+        verifyNoInteractions(jdbcTemplate);
+        verify(answerRepository, never()).upsertAnswer(anyLong(), anyLong(), anyInt(), anyLong(), any(), any(),
+                anyBoolean(), anyInt(), anyInt(), any(), any());
+
+        buffer.flushPending();
+
+        ArgumentCaptor<SqlParameterSource[]> answers = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(eq(AnswerRepository.UPSERT_ANSWER), answers.capture());
+
+        // In attempt order; two saves of question 10 collapse into the last one
+        assertThat(answers.getValue()).extracting(row -> row.getValue("attemptId")).containsExactly(100L, 100L, 101L);
+        assertThat(answers.getValue()).extracting(row -> row.getValue("pointsEarned")).containsExactly(0, 2, 0);
+        assertThat(answers.getValue()).extracting(row -> row.getValue("questionPoints")).containsExactly(1, 2, 1);
+
+        buffer.flushPending();
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void writesThroughInAClusterAfterLockingTheAttempt() {
+        // Any node may finalize the attempt, and none sees this buffer
+        properties.getCluster().setEnabled(true);
+        inProgress(100);
+
+        buffer.record(answer(100, 20, 21L), USER);
+
+        var order = inOrder(attemptRepository, answerRepository);
+        order.verify(attemptRepository).lockAttempt(100L);
+        order.verify(answerRepository).upsertAnswer(anyLong(), eq(100L), eq(1), eq(20L), eq(21L), isNull(), eq(true),
+                eq(2), eq(2), any(), any());
+    }
+
+    @Test
+    void refusesAnswersOnceTheAttemptWasFinalizedElsewhere() {
+        inProgress(100);
+        inProgress(101);
+        buffer.record(answer(100, 10, 11L), USER);
+        buffer.record(answer(101, 10, 11L), USER);
+
+        // 100 was submitted on another node before the flush
+        when(jdbcTemplate.batchUpdate(eq(AnswerRepository.UPSERT_ANSWER), any(SqlParameterSource[].class)))
+                .thenReturn(new int[]{0, 1});
+        buffer.flushPending();
+
+        verify(attemptStateCache).evict(100L);
+        verify(attemptStateCache, never()).evict(101L);
+
+        // Reloaded from the database, where it is no longer in progress
+        finished(100);
+        assertThatThrownBy(() -> buffer.record(answer(100, 20, 21L), USER))
+                .hasMessage("Attempt is not in progress");
+    }
+
+    @Test
+    void leavesAttemptsHeldByAFinalizerBuffered() {
+        inProgress(100);
+        inProgress(101);
+        buffer.record(answer(100, 10, 11L), USER);
+        buffer.record(answer(101, 10, 11L), USER);
+
+        // 100 is locked by its finalizer, which waits for this flush
+        when(attemptRepository.lockUnheldAttempts(anyCollection())).thenReturn(List.of(101L));
+        buffer.flushPending();
+
+        verify(answerRepository).upsertAnswer(anyLong(), eq(101L), eq(0), eq(10L), eq(11L), isNull(), eq(true),
+                eq(1), eq(1), any(), any());
+        verify(answerRepository, never()).upsertAnswer(anyLong(), eq(100L), anyInt(), anyLong(), any(), any(),
+                anyBoolean(), anyInt(), anyInt(), any(), any());
+        verify(attemptStateCache, never()).evict(anyLong());
+
+        // The finalizer holds the lock itself and writes the answer
+        when(attemptRepository.lockUnheldAttempts(anyCollection())).thenReturn(List.of(100L));
+        buffer.flushAndClose(100);
+        verify(answerRepository).upsertAnswer(anyLong(), eq(100L), eq(0), eq(10L), eq(11L), isNull(), eq(true),
+                eq(1), eq(1), any(), any());
+    }
+
+    @Test
+    void writeThroughOfAFinalizedAttemptIsNotReportedAsSaved() {
+        properties.getCluster().setEnabled(true);
+        inProgress(100);
+        when(answerRepository.upsertAnswer(anyLong(), anyLong(), anyInt(), anyLong(), any(), any(), anyBoolean(),
+                anyInt(), anyInt(), any(), any())).thenReturn(0);
+
+        assertThatThrownBy(() -> buffer.record(answer(100, 10, 11L), USER))
+                .hasMessage("Attempt is not in progress");
+        verify(attemptStateCache).evict(100L);
+    }
+
+    @Test
+    void finalizerFlushesAndClosesTheAttempt() {
+        inProgress(100);
+        buffer.record(answer(100, 10, 11L), USER);
+        assertThat(buffer.record(answer(100, 20, 22L), USER).getAnsweredCount()).isEqualTo(2);
+
+        buffer.flushAndClose(100);
+
+        verify(jdbcTemplate).batchUpdate(eq(AnswerRepository.UPSERT_ANSWER), argThat(
+                (SqlParameterSource[] rows) -> rows.length == 2));
+
+        // Not buffered any more: a late answer reloads the now finished attempt
+        finished(100);
+        assertThatThrownBy(() -> buffer.record(answer(100, 10, 12L), USER))
+                .hasMessage("Attempt is not in progress");
+    }
+
+    private void inProgress(long attemptId) {
+        state(attemptId, AttemptStatus.IN_PROGRESS);
+    }
+
+    private void finished(long attemptId) {
+        state(attemptId, AttemptStatus.SUBMITTED);
+    }
+
+    private void state(long attemptId, AttemptStatus status) {
+        AttemptStateCache.AttemptState state = mock(AttemptStateCache.AttemptState.class);
+        when(state.getStatus()).thenReturn(status);
+        when(state.getQuizId()).thenReturn(QUIZ);
+        when(state.getExpiresAt()).thenReturn(LocalDateTime.now().plusHours(1));
+        when(attemptStateCache.get(attemptId, USER)).thenReturn(state);
+    }
+
+    private static SubmitAnswerRequest answer(long attemptId, long questionId, Long optionId) {
+        SubmitAnswerRequest request = new SubmitAnswerRequest();
+        request.setAttemptId(attemptId);
+        request.setQuestionId(questionId);
+        request.setSelectedOptionId(optionId);
+        return request;
+    }
+
+    private static int[] filled(int length, int value) {
+        int[] counts = new int[length];
+        Arrays.fill(counts, value);
+        return counts;
+    }
+
+    // Options id+1 (correct) and id+2
+    private static Question question(long id, int points) {
+        Question question = Question.builder()
+                .id(id).type(QuestionType.MCQ).questionText("q").points(points).orderIndex((int) id / 10 - 1)
+                .build();
+        for (int i = 1; i <= 2; i++) {
+            question.getOptions().add(QuestionOption.builder()
+                    .id(id + i).question(question).optionText("o" + i).orderIndex(i - 1).isCorrect(i == 1)
+                    .build());
+        }
+        return question;
+    }
+
+    private static QuestionDTO dto(Question question) {
+        return QuestionDTO.builder()
+                .id(question.getId()).type(question.getType()).points(question.getPoints())
+                .orderIndex(question.getOrderIndex())
+                .options(question.getOptions().stream()
+                        .map(option -> QuestionOptionDTO.builder().id(option.getId()).build())
+                        .toList())
+                .build();
+    }
+}
@@ -0,0 +1,34 @@
+package app.quiz.glass.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AnswerIdsTests {
+
+    @Test
+    void takesWholeBlocksLikeThePooledGenerator() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        // 51 went to Hibernate, which uses 2..51 for it
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L, 101L, 151L);
+        AnswerIds ids = new AnswerIds(jdbcTemplate);
+
+        List<Long> handedOut = new ArrayList<>();
+        for (int i = 0; i < 1 + 50 + 50; i++) {
+            handedOut.add(ids.next());
+        }
+
+        List<Long> expected = new ArrayList<>(List.of(1L));
+        LongStream.rangeClosed(52, 151).forEach(expected::add);
+        assertThat(handedOut).isEqualTo(expected);
+        verify(jdbcTemplate, times(3)).queryForObject("SELECT nextval('answers_seq')", Long.class);
+    }
+}
@@ -0,0 +1,104 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.entities.Question;
+import app.quiz.glass.entities.QuestionOption;
+import app.quiz.glass.entities.QuestionType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnswerKeyTests {
+
+    private long ids = 1;
+
+    @Test
+    void gradesLikeThePerAnswerRules() {
+        Random random = new Random(7);
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            questions.add(switch (i % 3) {
+                case 0 -> question(QuestionType.MCQ, null, "a", "b", "c", "d");
+                case 1 -> question(QuestionType.TRUE_FALSE, null, "True", "False");
+                default -> question(QuestionType.NUMERICAL, null, "42", "x", " 3.5e1 ", "-0.25");
+            });
+        }
+        questions.get(4).getOptions().forEach(option -> option.setIsCorrect(true));
+        AnswerKey key = AnswerKey.compile(questions);
+
+        for (int n = 0; n < 10_000; n++) {
+            Question question = questions.get(random.nextInt(questions.size()));
+            List<QuestionOption> options = question.getOptions();
+            Long selected = random.nextInt(8) == 0 ? null : options.get(random.nextInt(options.size())).getId();
+            Double numerical = random.nextInt(8) == 0 ? null : pick(random);
+
+            boolean expected = legacyGrade(question, selected, numerical);
+            int index = key.indexOf(question.getId());
+            assertThat(key.isCorrect(index, selected, numerical))
+                    .as("question %d, option %s, value %s", question.getId(), selected, numerical)
+                    .isEqualTo(expected);
+        }
+        assertThat(key.totalPoints()).isEqualTo(questions.stream().mapToInt(Question::getPoints).sum());
+        assertThat(key.indexOf(-1)).isEqualTo(-1);
+    }
+
+    @Test
+    void numericalQuestionsUseTheirOwnTolerance() {
+        Question strict = question(QuestionType.NUMERICAL, 0.0001, "3.1416");
+        Question loose = question(QuestionType.NUMERICAL, 0.5, "10");
+        AnswerKey key = AnswerKey.compile(List.of(loose, strict));
+
+        assertThat(key.isCorrect(key.indexOf(strict.getId()), null, 3.14)).isFalse();
+        assertThat(key.isCorrect(key.indexOf(strict.getId()), null, 3.14162)).isTrue();
+        assertThat(key.isCorrect(key.indexOf(loose.getId()), null, 10.4)).isTrue();
+        assertThat(key.isCorrect(key.indexOf(loose.getId()), null, 10.6)).isFalse();
+    }
+
+    private static Double pick(Random random) {
+        double[] near = {42, 42.009, 41.99, 42.02, 35, 35.0099, -0.25, -0.26, 0, 1e9};
+        return near[random.nextInt(near.length)];
+    }
+
+    // First option is correct; for NUMERICAL every option is
+    private Question question(QuestionType type, Double tolerance, String... texts) {
+        Question question = Question.builder()
+                .id(ids++).type(type).questionText("q").points(1 + (int) (ids % 4)).orderIndex(0)
+                .numericTolerance(tolerance)
+                .build();
+        for (int i = 0; i < texts.length; i++) {
+            question.getOptions().add(QuestionOption.builder()
+                    .id(ids++).question(question).optionText(texts[i]).orderIndex(i)
+                    .isCorrect(type == QuestionType.NUMERICAL || i == 0)
+                    .build());
+        }
+        return question;
+    }
+
+    // The grading previously done per answer on entities, kept here as the reference
+    private static boolean legacyGrade(Question question, Long selectedOptionId, Double numericalAnswer) {
+        switch (question.getType()) {
+            case MCQ:
+            case TRUE_FALSE:
+                return selectedOptionId != null && question.getOptions().stream()
+                        .anyMatch(opt -> opt.getId().equals(selectedOptionId) && opt.getIsCorrect());
+
+            case NUMERICAL:
+                return numericalAnswer != null && question.getOptions().stream()
+                        .filter(QuestionOption::getIsCorrect)
+                        .anyMatch(opt -> {
+                            try {
+                                double correctValue = Double.parseDouble(opt.getOptionText());
+                                return Math.abs(correctValue - numericalAnswer) < 0.01;
+                            } catch (NumberFormatException e) {
+                                return false;
+                            }
+                        });
+
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.entities.Quiz;
+import app.quiz.glass.entities.QuizAttempt;
+import app.quiz.glass.entities.QuizStats;
+import app.quiz.glass.entities.User;
+import app.quiz.glass.repositories.QuizAttemptRepository;
+import app.quiz.glass.repositories.projections.LeaderboardRow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class LeaderboardStoreTests {
+
+    private static final long QUIZ = 9;
+
+    private final QuizAttemptRepository attemptRepository = mock(QuizAttemptRepository.class);
+    private final QuizStatsStore quizStatsStore = mock(QuizStatsStore.class);
+    private LeaderboardStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new LeaderboardStore(attemptRepository, quizStatsStore, new QuizAppProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void localCommitsKeepTheBoardWithoutReloading() {
+        statsVersion(3);
+        rows(row(1, 5, 3), row(2, 7, 3));
+        assertThat(store.get(QUIZ, 50).size()).isEqualTo(2);
+
+        List<TransactionSynchronization> commit = finalize(attempt(3, 9), 4);
+        commit.forEach(sync -> sync.beforeCommit(false));
+        // A read between the commit and the board update sees the new version
+        statsVersion(4);
+        assertThat(store.get(QUIZ, 50).size()).isEqualTo(2);
+        commit.forEach(TransactionSynchronization::afterCommit);
+        commit.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertThat(store.get(QUIZ, 50).page(0, 1).getEntries().get(0).getAttemptId()).isEqualTo(3);
+        verify(attemptRepository, times(1)).findLeaderboardRows(QUIZ);
+    }
+
+    @Test
+    void aVersionFromElsewhereReloads() {
+        statsVersion(3);
+        rows(row(1, 5, 3));
+        store.get(QUIZ, 50);
+
+        // Another node committed version 4, this node 5
+        List<TransactionSynchronization> commit = finalize(attempt(3, 9), 5);
+        commit.forEach(sync -> sync.beforeCommit(false));
+        commit.forEach(TransactionSynchronization::afterCommit);
+        commit.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        statsVersion(5);
+        rows(row(1, 5, 5), row(2, 6, 5), row(3, 9, 5));
+        assertThat(store.get(QUIZ, 50).size()).isEqualTo(3);
+        assertThat(store.get(QUIZ, 50).size()).isEqualTo(3);
+        verify(attemptRepository, times(2)).findLeaderboardRows(QUIZ);
+    }
+
+    @Test
+    void aRolledBackCommitIsNotExpected() {
+        statsVersion(3);
+        rows(row(1, 5, 3));
+        store.get(QUIZ, 50);
+
+        List<TransactionSynchronization> commit = finalize(attempt(3, 9), 4);
+        commit.forEach(sync -> sync.beforeCommit(false));
+        commit.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        // Version 4 is then someone else's
+        statsVersion(4);
+        store.get(QUIZ, 50);
+        verify(attemptRepository, times(2)).findLeaderboardRows(QUIZ);
+    }
+
+    // Registers the attempt as this node's transaction would, returning its synchronizations
+    private List<TransactionSynchronization> finalize(QuizAttempt attempt, long version) {
+        QuizStatsStore.Delta delta = mock(QuizStatsStore.Delta.class);
+        when(delta.getQuizId()).thenReturn(QUIZ);
+        when(delta.getVersion()).thenReturn(version);
+        TransactionSynchronizationManager.initSynchronization();
+        store.addAfterCommit(attempt, delta);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        return synchronizations;
+    }
+
+    private void rows(LeaderboardRow... rows) {
+        when(attemptRepository.findLeaderboardRows(QUIZ)).thenReturn(List.of(rows));
+    }
+
+    private void statsVersion(long version) {
+        QuizStatsStore.Snapshot snapshot = mock(QuizStatsStore.Snapshot.class);
+        when(snapshot.getStats()).thenReturn(QuizStats.builder().quizId(QUIZ).version(version).build());
+        when(quizStatsStore.get(anyLong(), anyInt())).thenReturn(snapshot);
+    }
+
+    private static QuizAttempt attempt(long id, int score) {
+        return QuizAttempt.builder()
+                .id(id).quiz(Quiz.builder().id(QUIZ).build())
+                .user(User.builder().id(id).fullName("u").build())
+                .score(score).totalPoints(10).submittedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private static LeaderboardRow row(long attemptId, int score, long version) {
+        LeaderboardRow row = mock(LeaderboardRow.class);
+        when(row.getAttemptId()).thenReturn(attemptId);
+        when(row.getUserId()).thenReturn(attemptId);
+        when(row.getUserName()).thenReturn("u");
+        when(row.getScore()).thenReturn(score);
+        when(row.getTotalPoints()).thenReturn(10);
+        when(row.getSubmittedAt()).thenReturn(LocalDateTime.of(2026, 1, 1, 9, 0));
+        when(row.getStatsVersion()).thenReturn(version);
+        return row;
+    }
+}
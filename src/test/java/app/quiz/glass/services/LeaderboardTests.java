@@ -0,0 +1,62 @@
+package app.quiz.glass.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeaderboardTests {
+
+    @Test
+    void pagesMatchSortedAttempts() {
+        Random random = new Random(5);
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 9, 0);
+        Leaderboard board = new Leaderboard();
+        List<Leaderboard.Entry> expected = new ArrayList<>();
+        for (long id = 1; id <= 3_000; id++) {
+            Leaderboard.Entry entry = new Leaderboard.Entry(id, random.nextInt(500), "u", random.nextInt(30), 30,
+                    random.nextInt(20) == 0 ? null : start.plusSeconds(random.nextInt(600)));
+            assertThat(board.add(entry)).isTrue();
+            expected.add(entry);
+        }
+        assertThat(board.add(expected.get(0))).isFalse();
+        expected.sort(Leaderboard.ORDER);
+
+        assertThat(board.size()).isEqualTo(expected.size());
+        for (int offset : new int[]{0, 1, 17, 1_500, 2_990, 3_000, 4_000}) {
+            Leaderboard.Page page = board.page(offset, 25);
+            assertThat(page.getEntries())
+                    .containsExactlyElementsOf(expected.subList(Math.min(offset, 3_000), Math.min(offset + 25, 3_000)));
+            assertThat(page.getTotal()).isEqualTo(3_000);
+        }
+    }
+
+    @Test
+    void aroundCentersOnTheUsersBestAttempt() {
+        Leaderboard board = new Leaderboard();
+        List<Long> order = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            order.add(id);
+        }
+        Collections.shuffle(order, new Random(3));
+        // Attempt id n scores 100 - n, so it ranks n-th; user 7 owns attempts 12 and 30
+        for (long id : order) {
+            long user = id == 12 || id == 30 ? 7 : 100 + id;
+            board.add(new Leaderboard.Entry(id, user, "u", (int) (100 - id), 100, null));
+        }
+
+        Leaderboard.Page page = board.around(7L, 5);
+        assertThat(page.getUserPosition()).isEqualTo(11);
+        assertThat(page.getOffset()).isEqualTo(6);
+        assertThat(page.getEntries()).extracting(Leaderboard.Entry::getAttemptId)
+                .containsExactly(7L, 8L, 9L, 10L, 11L, 12L, 13L, 14L, 15L, 16L, 17L);
+
+        assertThat(board.around(101L, 5).getEntries()).hasSize(6);
+        assertThat(board.around(999L, 5)).isNull();
+    }
+}
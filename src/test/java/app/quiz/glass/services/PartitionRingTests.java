@@ -0,0 +1,110 @@
+package app.quiz.glass.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionRingTests {
+
+    private static final int PARTITIONS = 64;
+    private static final int VIRTUAL_NODES = 32;
+
+    @Test
+    void everyPartitionHasOneOwnerWithinTheLoadBound() {
+        for (int n = 1; n <= 20; n++) {
+            List<String> nodes = nodes(n);
+            int capacity = (int) Math.ceil(PARTITIONS * PartitionRing.LOAD_FACTOR / n);
+
+            BitSet covered = new BitSet(PARTITIONS);
+            for (String node : nodes) {
+                BitSet owned = assign(nodes, node);
+                assertThat(owned.cardinality()).as("%d nodes, %s", n, node).isLessThanOrEqualTo(capacity);
+                assertThat(owned.intersects(covered)).as("%d nodes, %s", n, node).isFalse();
+                covered.or(owned);
+            }
+            assertThat(covered.cardinality()).isEqualTo(PARTITIONS);
+        }
+        assertThat(assign(nodes(3), "stranger").isEmpty()).isTrue();
+    }
+
+    @Test
+    void assignmentDependsOnlyOnMembership() {
+        List<String> nodes = nodes(7);
+        String[] owners = owners(nodes);
+        for (long seed = 0; seed < 5; seed++) {
+            List<String> shuffled = new ArrayList<>(nodes);
+            Collections.shuffle(shuffled, new Random(seed));
+            assertThat(owners(shuffled)).containsExactly(owners);
+        }
+    }
+
+    @Test
+    void joinsAndLeavesMoveLittleMoreThanTheChangedNodesShare() {
+        int moved = 0;
+        int unavoidable = 0;
+        for (int n = 2; n <= 16; n++) {
+            List<String> before = nodes(n);
+            String[] ownersBefore = owners(before);
+
+            // A node joins: only what it takes has to move
+            List<String> joined = nodes(n + 1);
+            String[] ownersJoined = owners(joined);
+            int joinMoved = changed(ownersBefore, ownersJoined);
+            int taken = assign(joined, joined.get(n)).cardinality();
+            assertThat(joinMoved).as("join to %d nodes", n + 1).isLessThanOrEqualTo(3 * taken);
+
+            // A node leaves: only what it held has to move
+            List<String> left = new ArrayList<>(before);
+            String gone = left.remove(n / 2);
+            String[] ownersLeft = owners(left);
+            int leaveMoved = changed(ownersBefore, ownersLeft);
+            int held = assign(before, gone).cardinality();
+            assertThat(leaveMoved).as("leave from %d nodes", n).isLessThanOrEqualTo(3 * held);
+            for (int p = 0; p < PARTITIONS; p++) {
+                if (!ownersBefore[p].equals(gone) && !ownersBefore[p].equals(ownersLeft[p])) {
+                    assertThat(ownersLeft[p]).isNotEqualTo(gone);
+                }
+            }
+
+            moved += joinMoved + leaveMoved;
+            unavoidable += taken + held;
+        }
+        assertThat(moved).isLessThanOrEqualTo((int) (unavoidable * 1.25));
+    }
+
+    private static BitSet assign(List<String> nodes, String node) {
+        return PartitionRing.assign(nodes, node, PARTITIONS, VIRTUAL_NODES);
+    }
+
+    private static String[] owners(List<String> nodes) {
+        String[] owners = new String[PARTITIONS];
+        for (String node : nodes) {
+            assign(nodes, node).stream().forEach(p -> owners[p] = node);
+        }
+        return owners;
+    }
+
+    private static int changed(String[] before, String[] after) {
+        int count = 0;
+        for (int p = 0; p < PARTITIONS; p++) {
+            if (!before[p].equals(after[p])) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static List<String> nodes(int count) {
+        List<String> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            nodes.add("node-" + i);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,72 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.dto.question.CreateOptionRequest;
+import app.quiz.glass.dto.question.CreateQuestionRequest;
+import app.quiz.glass.entities.QuestionType;
+import app.quiz.glass.entities.Quiz;
+import app.quiz.glass.repositories.QuizRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import(QuestionService.class)
+class QuestionServiceBatchingTests {
+
+    @Autowired
+    private QuestionService questionService;
+
+    @MockitoBean
+    private QuizContentCache contentCache;
+
+    @Autowired
+    private QuizRepository quizRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void optionsOfANewQuestionAreInsertedInJdbcBatches() {
+        Quiz quiz = quizRepository.save(Quiz.builder()
+                .title("Batching").durationMinutes(30)
+                .startTime(LocalDateTime.now()).endTime(LocalDateTime.now().plusHours(1))
+                .published(false).shuffleQuestions(false).shuffleOptions(false).passingScore(50)
+                .createdAt(LocalDateTime.now())
+                .build());
+        entityManager.flush();
+
+        List<CreateOptionRequest> options = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            options.add(new CreateOptionRequest("Option " + i, i == 0));
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        questionService.createQuestion(quiz.getId(),
+                new CreateQuestionRequest(QuestionType.MCQ, "Pick one", null, 1, options, null));
+        entityManager.flush();
+
+        // 41 rows: the question count, one question insert and two batches of 20 options,
+        // plus at most one sequence call per table
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(41);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(6);
+    }
+}
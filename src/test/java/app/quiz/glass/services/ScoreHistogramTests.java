@@ -0,0 +1,42 @@
+package app.quiz.glass.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScoreHistogramTests {
+
+    @Test
+    void percentilesMatchSortedScores() {
+        Random random = new Random(11);
+        List<Integer> percents = new ArrayList<>();
+        ScoreHistogram left = new ScoreHistogram();
+        ScoreHistogram right = new ScoreHistogram();
+        for (int n = 0; n < 5_000; n++) {
+            int total = 1 + random.nextInt(40);
+            int bucket = ScoreHistogram.bucketOf(random.nextInt(total + 1), total);
+            percents.add(bucket);
+            (n % 3 == 0 ? left : right).add(bucket, 1);
+        }
+        ScoreHistogram merged = new ScoreHistogram().merge(left).merge(right);
+        percents.sort(null);
+
+        assertThat(merged.count()).isEqualTo(percents.size());
+        for (double fraction : new double[]{0.01, 0.10, 0.25, 0.50, 0.75, 0.90, 1.0}) {
+            int rank = (int) Math.ceil(fraction * percents.size());
+            assertThat(merged.percentile(fraction)).as("p%s", fraction).isEqualTo(percents.get(rank - 1));
+        }
+    }
+
+    @Test
+    void bucketsAreWholePercentagesRoundedDown() {
+        assertThat(ScoreHistogram.bucketOf(2, 3)).isEqualTo(66);
+        assertThat(ScoreHistogram.bucketOf(7, 7)).isEqualTo(100);
+        assertThat(ScoreHistogram.bucketOf(5, 0)).isZero();
+        assertThat(new ScoreHistogram().percentile(0.5)).isNull();
+    }
+}
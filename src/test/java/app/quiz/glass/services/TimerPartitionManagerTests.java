@@ -0,0 +1,116 @@
+package app.quiz.glass.services;
+
+import app.quiz.glass.config.QuizAppProperties;
+import app.quiz.glass.repositories.ClusterNodeRepository;
+import app.quiz.glass.repositories.TimerPartitionLeaseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TimerPartitionManagerTests {
+
+    private static final int PARTITIONS = 16;
+
+    private final ClusterNodeRepository nodeRepository = mock(ClusterNodeRepository.class);
+    private final TimerPartitionLeaseRepository leaseRepository = mock(TimerPartitionLeaseRepository.class);
+    private final TimerService timerService = mock(TimerService.class);
+    private final AttemptExpirySweeper sweeper = mock(AttemptExpirySweeper.class);
+    private TimerPartitions partitions;
+    private TimerPartitionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        QuizAppProperties properties = new QuizAppProperties();
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setNodeId("a");
+        properties.getCluster().setPartitions(PARTITIONS);
+        partitions = new TimerPartitions(properties);
+        manager = new TimerPartitionManager(nodeRepository, leaseRepository, partitions, timerService, sweeper,
+                properties);
+
+        // Every lease asked for is granted unless a test says otherwise
+        when(leaseRepository.acquireLeases(eq("a"), anyList(), anyLong()))
+                .thenAnswer(call -> call.getArgument(1));
+    }
+
+    @Test
+    void handsOverPartitionsAsNodesJoinAndLeave() {
+        // Alone: takes every partition and loads all of their timers
+        when(nodeRepository.findLiveNodeIds(anyLong())).thenReturn(List.of("a"));
+        manager.rebalance();
+        assertThat(partitions.owned().cardinality()).isEqualTo(PARTITIONS);
+        verify(sweeper).restoreTimers(argThat(ids -> ids.size() == PARTITIONS), eq(LocalDateTime.of(1970, 1, 1, 0, 0)));
+
+        // b joins: what moved to b is dropped and released before anything is acquired
+        when(nodeRepository.findLiveNodeIds(anyLong())).thenReturn(List.of("a", "b"));
+        clearInvocations(sweeper);
+        manager.rebalance();
+        BitSet mine = PartitionRing.assign(List.of("a", "b"), "a", PARTITIONS, 32);
+        BitSet lost = new BitSet();
+        lost.set(0, PARTITIONS);
+        lost.andNot(mine);
+        assertThat(partitions.owned()).isEqualTo(mine);
+        verify(timerService).dropTimers(lost);
+        verify(leaseRepository).releaseLeases("a", lost.stream().boxed().toList());
+        // Nothing gained: only the catch-up of attempts started since the last pass
+        verify(sweeper).restoreTimers(argThat(ids -> ids.size() == mine.cardinality()),
+                argThat(since -> since.isAfter(LocalDateTime.of(1970, 1, 1, 0, 0))));
+
+        // b leaves: its partitions come back and are loaded in full
+        when(nodeRepository.findLiveNodeIds(anyLong())).thenReturn(List.of("a"));
+        clearInvocations(sweeper);
+        manager.rebalance();
+        assertThat(partitions.owned().cardinality()).isEqualTo(PARTITIONS);
+        verify(sweeper).restoreTimers(eq(toIds(lost)), eq(LocalDateTime.of(1970, 1, 1, 0, 0)));
+    }
+
+    @Test
+    void aLeaseThatCannotBeRenewedIsDropped() {
+        when(nodeRepository.findLiveNodeIds(anyLong())).thenReturn(List.of("a"));
+        manager.rebalance();
+
+        // Another node still holds partition 3 (e.g. our lease ran out during a pause)
+        when(leaseRepository.acquireLeases(eq("a"), anyList(), anyLong()))
+                .thenAnswer(call -> call.<List<Integer>>getArgument(1).stream().filter(p -> p != 3).toList());
+        manager.rebalance();
+
+        assertThat(partitions.owned().get(3)).isFalse();
+        assertThat(partitions.owned().cardinality()).isEqualTo(PARTITIONS - 1);
+        ArgumentCaptor<BitSet> dropped = ArgumentCaptor.forClass(BitSet.class);
+        verify(timerService).dropTimers(dropped.capture());
+        assertThat(dropped.getValue().stream().boxed().toList()).containsExactly(3);
+        verify(leaseRepository, never()).releaseLeases(any(), anyList());
+
+        // Once granted again it is restored in full
+        when(leaseRepository.acquireLeases(eq("a"), anyList(), anyLong()))
+                .thenAnswer(call -> call.getArgument(1));
+        clearInvocations(sweeper);
+        manager.rebalance();
+        assertThat(partitions.owned().get(3)).isTrue();
+        verify(sweeper).restoreTimers(eq(List.of(3L)), eq(LocalDateTime.of(1970, 1, 1, 0, 0)));
+    }
+
+    @Test
+    void leavingReleasesEveryLease() {
+        when(nodeRepository.findLiveNodeIds(anyLong())).thenReturn(List.of("a"));
+        manager.rebalance();
+
+        manager.leave();
+        assertThat(partitions.owned().isEmpty()).isTrue();
+        verify(leaseRepository).releaseAllLeases("a");
+        verify(nodeRepository).deleteById("a");
+    }
+
+    private static Collection<Long> toIds(BitSet partitionIds) {
+        return partitionIds.stream().mapToLong(p -> p).boxed().toList();
+    }
+}
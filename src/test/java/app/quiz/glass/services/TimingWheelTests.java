@@ -0,0 +1,200 @@
+package app.quiz.glass.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTests {
+
+    // Level spans in ticks: 64, 64^2, 64^3, and the 2^24 horizon
+    private static final long[] BOUNDARIES = {64, 4_096, 262_144, 16_777_216};
+
+    private final List<long[]> fired = new ArrayList<>();
+
+    private void record(long attemptId, long expiresAtMs, String userName) {
+        fired.add(new long[]{attemptId, expiresAtMs});
+    }
+
+    private static TimingWheel wakeAtExpiry(long tickMs) {
+        return new TimingWheel(tickMs, 0, (nowMs, expiresAtMs) -> expiresAtMs);
+    }
+
+    @Test
+    void rescheduleReplacesTheTimerAndCancelRemovesIt() {
+        TimingWheel wheel = wakeAtExpiry(10);
+        wheel.schedule(1, 100, 100, "a");
+        wheel.schedule(1, 500, 500, "b");
+        wheel.schedule(2, 300, 300, "c");
+        assertThat(wheel.size()).isEqualTo(2);
+        assertThat(wheel.userName(1)).isEqualTo("b");
+
+        wheel.advance(200, this::record);
+        assertThat(fired).isEmpty();
+
+        assertThat(wheel.cancel(2)).isTrue();
+        assertThat(wheel.cancel(2)).isFalse();
+        wheel.advance(499, this::record);
+        assertThat(fired).isEmpty();
+
+        wheel.advance(500, this::record);
+        assertThat(fired).containsExactly(new long[]{1, 500});
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.expiresAt(1)).isEqualTo(-1);
+        assertThat(wheel.cancel(1)).isFalse();
+
+        // An earlier reschedule of a timer parked on a higher level moves it down
+        wheel.schedule(3, 1_000_000, 1_000_000, "d");
+        wheel.schedule(3, 600, 600, "d");
+        wheel.advance(600, this::record);
+        assertThat(fired).hasSize(2);
+        wheel.advance(2_000_000, this::record);
+        assertThat(fired).hasSize(2);
+    }
+
+    @Test
+    void deadlinesAcrossLevelBoundariesFireOnTheirTick() {
+        TimingWheel wheel = wakeAtExpiry(1);
+        List<Long> deadlines = new ArrayList<>();
+        for (long boundary : BOUNDARIES) {
+            deadlines.add(boundary - 1);
+            deadlines.add(boundary);
+            deadlines.add(boundary + 1);
+        }
+        // Beyond the horizon: parked at the top level and re-placed on each cascade
+        deadlines.add(BOUNDARIES[3] * 2 + 12_345);
+        deadlines.add(BOUNDARIES[3] * 3 - 1);
+        deadlines.sort(null);
+        for (int i = 0; i < deadlines.size(); i++) {
+            wheel.schedule(i, deadlines.get(i), deadlines.get(i), "u");
+        }
+
+        for (int i = 0; i < deadlines.size(); i++) {
+            wheel.advance(deadlines.get(i) - 1, this::record);
+            assertThat(fired).as("before %d", deadlines.get(i)).hasSize(i);
+            wheel.advance(deadlines.get(i), this::record);
+            assertThat(fired).as("at %d", deadlines.get(i)).hasSize(i + 1);
+            assertThat(fired.get(i)).containsExactly(i, deadlines.get(i));
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void aGapOfManyTicksFiresEveryDueTimerOnce() {
+        TimingWheel wheel = new TimingWheel(100, 1_000_050, (nowMs, expiresAtMs) -> expiresAtMs);
+        Random random = new Random(1);
+        Map<Long, Long> due = new HashMap<>();
+        for (long id = 1; id <= 2_000; id++) {
+            long expiresAt = 1_000_000 + random.nextInt(20_000_000);
+            wheel.schedule(id, expiresAt, expiresAt, "u");
+            if (expiresAt <= 9_000_000) {
+                due.put(id, expiresAt);
+            }
+        }
+
+        wheel.advance(9_000_000, this::record);
+        Map<Long, Long> seen = new HashMap<>();
+        fired.forEach(timer -> assertThat(seen.put(timer[0], timer[1])).isNull());
+        assertThat(seen).isEqualTo(due);
+        assertThat(wheel.size()).isEqualTo(2_000 - due.size());
+
+        wheel.advance(25_000_000, this::record);
+        assertThat(fired).hasSize(2_000);
+    }
+
+    @Test
+    void indexRemovalKeepsWrappedProbeChainsReachable() {
+        TimingWheel wheel = wakeAtExpiry(1);
+        // Ids hashing to the last slot of the initial 64-slot table wrap around to slot 0
+        List<Long> lastSlot = idsWithHome(63, 3);
+        List<Long> firstSlot = idsWithHome(0, 2);
+        List<Long> all = new ArrayList<>(lastSlot);
+        all.addAll(firstSlot);
+        for (long id : all) {
+            wheel.schedule(id, 1_000 + id, 1_000 + id, "u");
+        }
+
+        assertThat(wheel.cancel(lastSlot.get(0))).isTrue();
+        assertThat(wheel.cancel(firstSlot.get(0))).isTrue();
+        for (long id : List.of(lastSlot.get(1), lastSlot.get(2), firstSlot.get(1))) {
+            assertThat(wheel.expiresAt(id)).as("id %d", id).isEqualTo(1_000 + id);
+        }
+        assertThat(wheel.expiresAt(lastSlot.get(0))).isEqualTo(-1);
+        assertThat(wheel.size()).isEqualTo(3);
+    }
+
+    @Test
+    void randomSchedulesAndCancelsMatchAMap() {
+        TimingWheel wheel = wakeAtExpiry(1);
+        Random random = new Random(9);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int n = 0; n < 50_000; n++) {
+            long id = random.nextInt(300);
+            if (random.nextInt(3) == 0) {
+                assertThat(wheel.cancel(id)).isEqualTo(expected.remove(id) != null);
+            } else {
+                long expiresAt = 1 + random.nextInt(1_000_000);
+                wheel.schedule(id, expiresAt, expiresAt, "u");
+                expected.put(id, expiresAt);
+            }
+            if (n % 1_000 == 0) {
+                for (long key = 0; key < 300; key++) {
+                    assertThat(wheel.expiresAt(key)).isEqualTo(expected.getOrDefault(key, -1L));
+                }
+            }
+        }
+        assertThat(wheel.size()).isEqualTo(expected.size());
+    }
+
+    @Test
+    void cancelIfRemovesOnlyMatchingTimers() {
+        TimingWheel wheel = wakeAtExpiry(1);
+        for (long id = 1; id <= 100; id++) {
+            wheel.schedule(id, 50 + id, 50 + id, "u");
+        }
+
+        assertThat(wheel.cancelIf(id -> id % 2 == 0)).isEqualTo(50);
+        assertThat(wheel.cancelIf(id -> id % 2 == 0)).isZero();
+        assertThat(wheel.size()).isEqualTo(50);
+
+        wheel.advance(1_000, this::record);
+        assertThat(fired).hasSize(50).allSatisfy(timer -> assertThat(timer[0] % 2).isEqualTo(1));
+    }
+
+    @Test
+    void expiryIsVisitedExactlyOnceAfterTheWakeUps() {
+        // Wakes every 1000 ms until expiry
+        TimingWheel wheel = new TimingWheel(10, 0, (nowMs, expiresAtMs) -> nowMs + 1_000);
+        wheel.schedule(7, 5_000, 1_000, "u");
+
+        int expiries = 0;
+        for (long now = 0; now <= 20_000; now += 7) {
+            int before = fired.size();
+            wheel.advance(now, this::record);
+            for (long[] timer : fired.subList(before, fired.size())) {
+                if (timer[1] <= now) {
+                    expiries++;
+                }
+            }
+        }
+        assertThat(expiries).isEqualTo(1);
+        assertThat(fired.size()).isBetween(5, 6);
+        assertThat(wheel.size()).isZero();
+    }
+
+    // Same hash as the wheel's index, against its initial 64-slot table
+    private static List<Long> idsWithHome(int home, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; ids.size() < count; id++) {
+            if (((int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & 63) == home) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}